@@ -0,0 +1,204 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerSettings {
+
+    /**
+     * Number of fetch workers shared by all sites. Crawling is I/O bound,
+     * so this is set independently of the CPU count.
+     */
+    private int fetchThreads = 16;
+
+    /**
+     * Fetched pages go through a pipeline of stages, each with its own threads:
+     * parse (HTML, links, hashes), lemmatize (CPU bound; 0 means one thread per core)
+     * and persist (database writes). Stages are connected by queues of
+     * pipeline-queue-capacity pages; a full queue makes the previous stage wait.
+     */
+    private int parseThreads = 2;
+    private int lemmatizeThreads = 0;
+    private int persistThreads = 4;
+    private int pipelineQueueCapacity = 256;
+
+    private String userAgent = "HeliontSearchBot";
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 10000;
+
+    /**
+     * Deadline for reading a page body once the headers have arrived. read-timeout-ms covers
+     * only the wait for headers; a server that stalls mid-body is cut off after body-timeout-ms.
+     */
+    private int bodyTimeoutMs = 30000;
+
+    /**
+     * Max size of a page body after decompression. Larger responses are dropped
+     * without being stored (page.content is a MEDIUMTEXT, 16 MB at most).
+     */
+    private long maxPageBytes = 5L * 1024 * 1024;
+
+    /**
+     * Default request rate per host, used for sites without their own
+     * requests-per-second setting.
+     */
+    private double requestsPerSecond = 5.0;
+
+    /**
+     * Adaptive per-host concurrency: the limit starts at host-initial-concurrency, grows while
+     * average latency stays under host-latency-target-ms and is halved on timeouts, 429 and 503.
+     */
+    private int hostInitialConcurrency = 2;
+    private int hostMaxConcurrency = 8;
+    private long hostLatencyTargetMs = 2000;
+
+    /**
+     * Upper bound for pauses requested by Retry-After.
+     */
+    private long maxRetryAfterSeconds = 600;
+
+    /**
+     * After breaker-failure-threshold failures in a row (5xx, timeouts, connection errors)
+     * a host is not requested for breaker-open-seconds; the pause doubles each time it reopens.
+     */
+    private int breakerFailureThreshold = 5;
+    private int breakerOpenSeconds = 30;
+
+    /**
+     * How many requests to one host may go out back to back before the rate applies.
+     */
+    private int requestBurst = 1;
+
+    /**
+     * Max number of URL fingerprints kept exactly per site crawl (8-16 bytes each).
+     */
+    private long visitedMaxUrls = 2_000_000;
+
+    /**
+     * Adds a Bloom filter to the visited set, which keeps deduplicating URLs
+     * after the exact set is full. Meant for very large sites.
+     */
+    private boolean visitedBloomFilter = false;
+    private long visitedBloomExpectedUrls = 20_000_000;
+    private double visitedBloomFalsePositiveRate = 0.001;
+
+    /**
+     * Pages whose SimHash similarity to an already indexed page is at least
+     * near-duplicate-similarity are stored but not indexed.
+     */
+    private boolean nearDuplicateDetection = true;
+    private double nearDuplicateSimilarity = 0.95;
+
+    /**
+     * Honour Disallow rules and Crawl-delay from each host's robots.txt.
+     */
+    private boolean robotsTxt = true;
+
+    /**
+     * Seed the frontier from the sitemaps listed in robots.txt (or /sitemap.xml).
+     * sitemap-max-files caps how many sitemap files, including nested ones, are read per site.
+     */
+    private boolean sitemaps = true;
+    private int sitemapMaxFiles = 50;
+
+    /**
+     * Limits for one sitemap file after decompression; the sitemaps protocol allows at most
+     * 50 MB and 50,000 URLs per file. Sitemaps are read with the same body-timeout-ms deadline as pages.
+     */
+    private long sitemapMaxBytes = 50L * 1024 * 1024;
+    private int sitemapMaxUrls = 50000;
+
+    /**
+     * Periodically save each site's frontier and visited set to checkpoint-dir,
+     * so that a crawl interrupted by a restart can be resumed with /startIndexing?resume=true.
+     */
+    private boolean checkpoints = true;
+    private String checkpointDir = "data/checkpoints";
+    private int checkpointIntervalSeconds = 300;
+
+    /**
+     * How often a crawling site's status_time and last_error are written to the database.
+     * Status changes (FAILED, INDEXED) are written immediately.
+     */
+    private long statusFlushIntervalMs = 1000;
+
+    /**
+     * Transient page failures (network errors, timeouts, HTTP 429 and 5xx) are fetched again
+     * up to retry-max-attempts times. The delay starts at retry-base-delay-ms and doubles
+     * with every attempt, capped by retry-max-delay-ms.
+     */
+    private int retryMaxAttempts = 3;
+    private long retryBaseDelayMs = 2000;
+    private long retryMaxDelayMs = 60000;
+
+    /**
+     * A site is marked FAILED only when, at the end of its crawl, failed pages make up at least
+     * site-failure-error-rate of its processed pages. The status does not change while the crawl runs.
+     */
+    private double siteFailureErrorRate = 0.2;
+
+    /**
+     * Crawl together with other instances that share the database. The frontier then lives in
+     * the frontier table: a node claims cluster-claim-batch URLs at a time under a lease of
+     * cluster-lease-seconds and renews it while working on them. Leases of a node that went away
+     * expire, and other nodes take those URLs over. Every cluster-sync-interval-ms a node publishes
+     * the links it found, marks finished URLs and claims more. Every cluster-join-interval-seconds
+     * it joins crawls started on other nodes. cluster-node-id defaults to host name and process id.
+     */
+    private boolean cluster = false;
+    private String clusterNodeId = "";
+    private int clusterLeaseSeconds = 120;
+    private int clusterClaimBatch = 50;
+    private long clusterSyncIntervalMs = 1000;
+    private int clusterJoinIntervalSeconds = 10;
+
+    /**
+     * Write every fetched page as a WARC response record to warc-dir/<host>/. Each record is
+     * gzip-compressed on its own, and a new file starts after warc-max-file-mb.
+     * /api/startIndexing?replay=true rebuilds the index from these files without network access.
+     */
+    private boolean warcCapture = false;
+    private String warcDir = "data/warc";
+    private long warcMaxFileMb = 1024;
+
+    /**
+     * /api/reindex rebuilds lemma and index from the HTML already stored in page.content.
+     * Pages are copied and read in chunks of reindex-chunk-size rows and lemmatized on reindex-threads
+     * threads (0 means one thread per core); lemmas and index rows of a chunk are written together.
+     */
+    private int reindexChunkSize = 500;
+    private int reindexThreads = 0;
+
+    /**
+     * Old index generations are deleted with native DELETE ... LIMIT statements of
+     * purge-chunk-size rows, each in its own transaction, so memory use and lock time stay bounded.
+     */
+    private int purgeChunkSize = 10000;
+
+    /**
+     * Heap budget of the crawl in megabytes; 0 means the whole -Xmx. When the heap in use
+     * after garbage collection exceeds memory-pressure-ratio of the ceiling, fetch workers
+     * stop taking new pages until the pipeline has drained enough to free memory.
+     */
+    private long memoryCeilingMb = 0;
+    private double memoryPressureRatio = 0.85;
+
+    /**
+     * Query and path parameters removed from every URL before deduplication, so that tracking
+     * and session parameters do not turn one page into many. Names are case-insensitive,
+     * * matches any characters. Only unambiguous session keys are listed: short names such as
+     * sid are content parameters on many sites, so add them per site with drop-params.
+     */
+    private List<String> canonicalDropParams = new ArrayList<>(List.of(
+            "utm_*", "gclid", "dclid", "fbclid", "yclid", "msclkid", "_openstat",
+            "jsessionid", "phpsessid", "aspsessionid*", "sessionid", "session_id"));
+}
@@ -3,9 +3,44 @@
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Setter
 @Getter
 public class Site {
     private String url;
     private String name;
+
+    /**
+     * Max requests per second sent to this site's host.
+     * When empty, crawler-settings.requests-per-second is used.
+     */
+    private Double requestsPerSecond;
+
+    /**
+     * Crawl budget. Links deeper than max-depth hops from the root are not followed;
+     * the crawl stops after max-pages fetched pages or max-duration-minutes.
+     * A site that hits its budget ends as INDEXED with a note. Empty means no limit.
+     */
+    private Integer maxDepth;
+    private Long maxPages;
+    private Long maxDurationMinutes;
+
+    /**
+     * Extra query and path parameters to drop from this site's URLs,
+     * on top of crawler-settings.canonical-drop-params.
+     */
+    private List<String> dropParams;
+
+    /**
+     * Share of fetch workers relative to other sites being crawled at the same time:
+     * a site with weight 3 gets three pages fetched for every page of a site with weight 1.
+     * Empty means 1.
+     */
+    private Integer weight;
+
+    /**
+     * Max number of fetch workers busy with this site at once. Empty means no quota.
+     */
+    private Integer maxWorkers;
 }
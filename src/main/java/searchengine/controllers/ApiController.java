@@ -23,13 +23,40 @@ public class ApiController {
     private final SearchService searchService;
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<IndexingResponse> startIndexing() {
-        return ResponseEntity.ok(indexingService.startIndexing());
+    public ResponseEntity<IndexingResponse> startIndexing(
+            @RequestParam(defaultValue = "false") boolean incremental,
+            @RequestParam(defaultValue = "false") boolean resume,
+            @RequestParam(defaultValue = "false") boolean replay,
+            @RequestParam(required = false) String site) {
+        if (site != null) {
+            return ResponseEntity.ok(indexingService.startSiteIndexing(site, incremental));
+        }
+        if (replay) {
+            return ResponseEntity.ok(indexingService.replayIndexing());
+        }
+        if (resume) {
+            return ResponseEntity.ok(indexingService.resumeIndexing());
+        }
+        return ResponseEntity.ok(incremental
+                ? indexingService.startIncrementalIndexing()
+                : indexingService.startIndexing());
+    }
+
+    @GetMapping("/joinIndexing")
+    public ResponseEntity<IndexingResponse> joinIndexing() {
+        return ResponseEntity.ok(indexingService.joinIndexing());
+    }
+
+    @GetMapping("/reindex")
+    public ResponseEntity<IndexingResponse> reindex(@RequestParam(required = false) String site) {
+        return ResponseEntity.ok(indexingService.reindex(site));
     }
 
     @GetMapping("/stopIndexing")
-    public ResponseEntity<IndexingResponse> stopIndexing() {
-        return ResponseEntity.ok(indexingService.stopIndexing());
+    public ResponseEntity<IndexingResponse> stopIndexing(@RequestParam(required = false) String site) {
+        return ResponseEntity.ok(site != null
+                ? indexingService.stopSiteIndexing(site)
+                : indexingService.stopIndexing());
     }
 
     @PostMapping("/indexPage")
@@ -0,0 +1,13 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ClusterStatistics {
+    private long queued;
+    private long leased;
+    private long done;
+    private List<String> nodes;
+}
@@ -0,0 +1,16 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class CrawlStatistics {
+    private long pagesProcessed;
+    private long errors;
+    private long retries;
+    private double pagesPerSecond;
+    private double averagePagesPerSecond;
+    private int queued;
+    private int inProgress;
+    private int weight;
+    private double share;
+}
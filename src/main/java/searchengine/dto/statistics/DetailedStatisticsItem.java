@@ -13,4 +13,12 @@ public class DetailedStatisticsItem {
     private String error;
     private long pages;
     private long lemmas;
+    // Лимит и задержка хоста во время обхода; null, если к хосту ещё не было запросов
+    private HostStatistics host;
+    // Скорость и ошибки текущего обхода; null, если сайт сейчас не обходится
+    private CrawlStatistics crawl;
+    // Общая очередь сайта во всём кластере; null вне кластера или если сайт не индексируется
+    private ClusterStatistics cluster;
+    // Ход переиндексации из сохранённых страниц; null, если сайт не переиндексировался
+    private ReindexStatistics reindex;
 }
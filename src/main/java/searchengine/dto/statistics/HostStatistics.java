@@ -0,0 +1,12 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class HostStatistics {
+    private int concurrencyLimit;
+    private int inFlight;
+    private long latencyMs;
+    private String circuit;
+    private long retryAfterMs;
+}
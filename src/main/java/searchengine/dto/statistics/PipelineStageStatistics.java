@@ -0,0 +1,15 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class PipelineStageStatistics {
+    private String stage;
+    private int threads;
+    private int active;
+    private int queued;
+    private int queueCapacity;
+    private long processed;
+    private double perSecond;
+    private double averageMs;
+}
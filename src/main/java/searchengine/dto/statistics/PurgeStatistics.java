@@ -0,0 +1,11 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class PurgeStatistics {
+    private String url;
+    private String table;
+    private long deleted;
+    private double rowsPerSecond;
+}
@@ -0,0 +1,15 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class ReindexStatistics {
+    private long total;
+    private long processed;
+    private long indexed;
+    private long duplicates;
+    private long errors;
+    private long lemmas;
+    private double pagesPerSecond;
+    private boolean finished;
+}
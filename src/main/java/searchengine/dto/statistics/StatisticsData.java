@@ -9,4 +9,6 @@ public class StatisticsData {
     private TotalStatistics total;
     private List<DetailedStatisticsItem> detailed;
     private boolean indexing;
+    // Стадии обхода: загрузка, разбор, лемматизация, запись; пусто, если обход не идёт
+    private List<PipelineStageStatistics> pipeline;
 }
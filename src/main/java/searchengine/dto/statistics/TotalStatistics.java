@@ -8,4 +8,6 @@ public class TotalStatistics {
     private int pages;
     private int lemmas;
     private boolean indexing;
+    // Удаление прежнего индекса; null, если ничего не удаляется
+    private PurgeStatistics purge;
 }
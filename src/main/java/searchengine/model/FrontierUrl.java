@@ -0,0 +1,53 @@
+package searchengine.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import javax.persistence.Index;
+import java.time.LocalDateTime;
+
+/**
+ * URL в общей очереди обхода, которую делят узлы кластера. Узел забирает URL пачкой
+ * под аренду (lease) до lease_until и продлевает её, пока обрабатывает; URL с истёкшей арендой
+ * снова доступен всем узлам. Обработанные URL остаются со статусом DONE: по url_hash
+ * ни один узел не поставит их в очередь повторно.
+ */
+@Entity
+@Setter
+@Getter
+@Table(name = "frontier",
+       indexes = {@Index(name = "frontier_claim_index", columnList = "site_id, status, depth"),
+                  @Index(name = "frontier_owner_index", columnList = "lease_owner")},
+       uniqueConstraints = {@UniqueConstraint(name = "frontier_site_url_unique", columnNames = {"site_id", "url_hash"})})
+public class FrontierUrl {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "site_id", nullable = false)
+    private Site site;
+
+    @Column(columnDefinition = "VARCHAR(2048)", nullable = false)
+    private String url;
+
+    // 64-битный отпечаток URL: уникальный ключ вместо длинной строки
+    @Column(name = "url_hash", nullable = false)
+    private long urlHash;
+
+    @Column(nullable = false)
+    private int depth;
+
+    @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "ENUM('QUEUED', 'LEASED', 'DONE')", nullable = false)
+    private FrontierStatus status;
+
+    // Узел и номер пачки, которыми URL взят в работу: "<node-id>/<n>"
+    @Column(name = "lease_owner", columnDefinition = "VARCHAR(128)")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,11 @@
+package searchengine.model;
+
+/**
+ * Поколение индекса сайта: поиск читает только CURRENT, новый индекс строится в SHADOW,
+ * прежний после переключения получает RETIRED и удаляется в фоне.
+ */
+public enum Generation {
+    CURRENT,
+    SHADOW,
+    RETIRED
+}
@@ -5,13 +5,15 @@
 
 import javax.persistence.*;
 import javax.persistence.Index;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Setter
 @Getter
 @Table(name = "page", 
-       indexes = {@Index(name = "path_index", columnList = "path")},
+       indexes = {@Index(name = "path_index", columnList = "path"),
+                  @Index(name = "content_hash_index", columnList = "site_id, content_hash")},
        uniqueConstraints = {@UniqueConstraint(name = "site_path_unique", columnNames = {"site_id", "path"})})
 public class Page {
 
@@ -32,6 +34,28 @@ public class Page {
     @Column(columnDefinition = "MEDIUMTEXT",nullable = false)
     private String content;
 
+    // Валидаторы из ответа сервера для условных запросов при повторном обходе
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "fetch_time")
+    private LocalDateTime fetchTime;
+
+    // SHA-256 нормализованного текста страницы: неизменившиеся страницы и копии не индексируются повторно
+    @Column(name = "content_hash", columnDefinition = "VARCHAR(64)")
+    private String contentHash;
+
+    // SimHash текста для поиска почти одинаковых страниц
+    @Column(name = "simhash")
+    private Long simhash;
+
+    // Число переходов от корня сайта, по которому страница найдена при обходе
+    @Column(name = "depth")
+    private Integer depth;
+
     @OneToMany(mappedBy = "page", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<searchengine.model.Index> indexes;
 
@@ -0,0 +1,47 @@
+package searchengine.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import javax.persistence.Index;
+import java.time.LocalDateTime;
+
+/**
+ * Страница, которую не удалось обработать при обходе: после всех повторов
+ * или из-за ошибки, которую повтор не исправит. Сайт при этом не обходится заново.
+ */
+@Entity
+@Setter
+@Getter
+@Table(name = "page_error",
+       indexes = {@Index(name = "page_error_site_index", columnList = "site_id")})
+public class PageError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "site_id", nullable = false)
+    private Site site;
+
+    @Column(columnDefinition = "VARCHAR(512)", nullable = false)
+    private String path;
+
+    // Стадия обработки, на которой произошла ошибка: fetch, parse, persist
+    @Column(columnDefinition = "VARCHAR(16)", nullable = false)
+    private String stage;
+
+    // HTTP-код последней попытки; null, если ответа не было
+    private Integer code;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "error_time", nullable = false)
+    private LocalDateTime errorTime;
+}
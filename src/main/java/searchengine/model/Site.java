@@ -4,13 +4,14 @@
 import lombok.Setter;
 
 import javax.persistence.*;
+import javax.persistence.Index;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "site")
+@Table(name = "site", indexes = {@Index(name = "site_url_index", columnList = "url")})
 public class Site {
 
     @Id
@@ -27,12 +28,18 @@ public class Site {
     @Column(name = "last_error", columnDefinition = "TEXT")
     private String lastError;
 
-    @Column(columnDefinition = "VARCHAR(255)", nullable = false, unique = true)
+    // У адреса может быть несколько строк: текущий индекс, строящийся и удаляемый
+    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String url;
 
     @Column(columnDefinition = "VARCHAR(255)",nullable = false)
     private String name;
 
+    // Меняется только запросами переключения поколений, сохранение сущности его не перезаписывает
+    @Enumerated(EnumType.STRING)
+    @Column(columnDefinition = "ENUM('CURRENT', 'SHADOW', 'RETIRED') NOT NULL DEFAULT 'CURRENT'", updatable = false)
+    private Generation generation = Generation.CURRENT;
+
     @OneToMany(mappedBy = "site", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Page> pages;
 
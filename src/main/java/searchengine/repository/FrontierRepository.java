@@ -0,0 +1,86 @@
+package searchengine.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.FrontierUrl;
+import searchengine.model.Site;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FrontierRepository extends JpaRepository<FrontierUrl, Long> {
+
+    // Свободные URL и URL с истёкшей арендой, мелкие глубины первыми
+    @Query("select f.id from FrontierUrl f where f.site = :site " +
+            "and (f.status = searchengine.model.FrontierStatus.QUEUED " +
+            "or (f.status = searchengine.model.FrontierStatus.LEASED and f.leaseUntil < :now)) " +
+            "order by f.depth, f.id")
+    List<Long> findClaimable(@Param("site") Site site, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Условие повторяется в UPDATE: строку, которую успел забрать другой узел, он не перезапишет
+    @Modifying
+    @Transactional
+    @Query("update FrontierUrl f set f.status = searchengine.model.FrontierStatus.LEASED, " +
+            "f.leaseOwner = :owner, f.leaseUntil = :until " +
+            "where f.id in :ids and (f.status = searchengine.model.FrontierStatus.QUEUED " +
+            "or (f.status = searchengine.model.FrontierStatus.LEASED and f.leaseUntil < :now))")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("owner") String owner,
+              @Param("until") LocalDateTime until,
+              @Param("now") LocalDateTime now);
+
+    List<FrontierUrl> findByLeaseOwner(String leaseOwner);
+
+    @Modifying
+    @Transactional
+    @Query("update FrontierUrl f set f.leaseUntil = :until " +
+            "where f.status = searchengine.model.FrontierStatus.LEASED and f.leaseOwner like :ownerPrefix")
+    int renew(@Param("ownerPrefix") String ownerPrefix, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("update FrontierUrl f set f.status = searchengine.model.FrontierStatus.DONE, " +
+            "f.leaseOwner = null, f.leaseUntil = null where f.id in :ids")
+    int markDone(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("update FrontierUrl f set f.status = searchengine.model.FrontierStatus.QUEUED, " +
+            "f.leaseOwner = null, f.leaseUntil = null " +
+            "where f.id in :ids and f.status = searchengine.model.FrontierStatus.LEASED " +
+            "and f.leaseOwner like :ownerPrefix")
+    int release(@Param("ids") Collection<Long> ids, @Param("ownerPrefix") String ownerPrefix);
+
+    @Query("select f.urlHash from FrontierUrl f where f.site = :site and f.urlHash in :hashes")
+    List<Long> findExistingHashes(@Param("site") Site site, @Param("hashes") Collection<Long> hashes);
+
+    // Пары [status, count] по сайту
+    @Query("select f.status, count(f) from FrontierUrl f where f.site = :site group by f.status")
+    List<Object[]> countByStatus(@Param("site") Site site);
+
+    // Владельцы действующих аренд URL сайта
+    @Query("select distinct f.leaseOwner from FrontierUrl f where f.site = :site " +
+            "and f.status = searchengine.model.FrontierStatus.LEASED and f.leaseUntil >= :now")
+    List<String> findLeaseOwners(@Param("site") Site site, @Param("now") LocalDateTime now);
+
+    @Query("select count(f) from FrontierUrl f where f.site = :site " +
+            "and f.status <> searchengine.model.FrontierStatus.DONE")
+    long countOpen(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FrontierUrl f where f.site = :site")
+    int deleteBySite(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from frontier where site_id = :siteId limit :limit", nativeQuery = true)
+    int deleteChunkBySite(@Param("siteId") int siteId, @Param("limit") int limit);
+}
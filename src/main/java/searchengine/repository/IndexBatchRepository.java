@@ -0,0 +1,18 @@
+package searchengine.repository;
+
+import searchengine.model.Index;
+
+import java.util.List;
+
+/**
+ * Пакетная запись строк индекса в обход JPA: у Index идентификатор IDENTITY,
+ * и Hibernate не может объединять такие INSERT в пакет.
+ */
+public interface IndexBatchRepository {
+
+    /**
+     * Записывает строки пакетами JDBC; страница и лемма каждой строки должны быть уже сохранены.
+     * С rewriteBatchedStatements=true в URL драйвер MySQL отправляет пакет многострочными INSERT.
+     */
+    void insertBatch(List<Index> rows);
+}
@@ -0,0 +1,27 @@
+package searchengine.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.model.Index;
+
+import java.util.List;
+
+public class IndexBatchRepositoryImpl implements IndexBatchRepository {
+
+    private static final String INSERT = "insert into `index` (page_id, lemma_id, lemma_rank) values (?, ?, ?)";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IndexBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertBatch(List<Index> rows) {
+        jdbcTemplate.batchUpdate(INSERT, rows, BATCH_SIZE, (statement, index) -> {
+            statement.setInt(1, index.getPage().getId());
+            statement.setInt(2, index.getLemma().getId());
+            statement.setFloat(3, index.getRank());
+        });
+    }
+}
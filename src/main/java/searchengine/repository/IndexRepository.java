@@ -9,11 +9,12 @@
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
+import searchengine.model.Site;
 
 import java.util.List;
 
 @Repository
-public interface IndexRepository extends JpaRepository<Index, Integer> {
+public interface IndexRepository extends JpaRepository<Index, Integer>, IndexBatchRepository {
     List<Index> findByPage(Page page);
     
     @Modifying
@@ -27,4 +28,11 @@ public interface IndexRepository extends JpaRepository<Index, Integer> {
     List<Index> findByPageAndLemmaIn(@Param("page") Page page, @Param("lemmas") List<Lemma> lemmas);
 
     boolean existsByPageAndLemma(Page page, Lemma lemma);
+
+    // Порция строк индекса сайта; удаление повторяется, пока не вернёт меньше limit
+    @Modifying
+    @Transactional
+    @Query(value = "delete from `index` where page_id in (select id from page where site_id = :siteId) " +
+            "limit :limit", nativeQuery = true)
+    int deleteChunkBySite(@Param("siteId") int siteId, @Param("limit") int limit);
 }
@@ -1,9 +1,12 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Lemma;
+import searchengine.model.Page;
 import searchengine.model.Site;
 
 import java.util.List;
@@ -25,4 +28,26 @@ public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
 
     @Query("select count(l) from Lemma l where l.site = :site")
     long countTotalLemmasBySite(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query("update Lemma l set l.frequency = l.frequency - 1 " +
+            "where l.id in (select i.lemma.id from Index i where i.page = :page)")
+    int decrementFrequencyByPage(@Param("page") Page page);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Lemma l where l.site = :site and l.frequency <= 0")
+    int deleteUnusedBySite(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from lemma where site_id = :siteId limit :limit", nativeQuery = true)
+    int deleteChunkBySite(@Param("siteId") int siteId, @Param("limit") int limit);
+
+    // Частота леммы — число страниц, в индексе которых она есть
+    @Modifying
+    @Transactional
+    @Query("update Lemma l set l.frequency = (select count(i) from Index i where i.lemma = l) where l.site = :site")
+    int updateFrequenciesBySite(@Param("site") Site site);
 }
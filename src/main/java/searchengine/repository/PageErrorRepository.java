@@ -0,0 +1,26 @@
+package searchengine.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.PageError;
+import searchengine.model.Site;
+
+@Repository
+public interface PageErrorRepository extends JpaRepository<PageError, Integer> {
+
+    long countBySite(Site site);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PageError e where e.site = :site")
+    int deleteBySite(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from page_error where site_id = :siteId limit :limit", nativeQuery = true)
+    int deleteChunkBySite(@Param("siteId") int siteId, @Param("limit") int limit);
+}
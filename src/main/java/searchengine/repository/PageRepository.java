@@ -1,11 +1,18 @@
 package searchengine.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface PageRepository extends JpaRepository<Page, Integer> {
 
@@ -14,4 +21,84 @@ public interface PageRepository extends JpaRepository<Page, Integer> {
 
     @Query("select count(p) from Page p")
     int getTotalPages();
+
+    // Тройки [path, fetchTime, depth] сохранённых страниц сайта
+    @Query("select p.path, p.fetchTime, p.depth from Page p where p.site = :site")
+    List<Object[]> findKnownPagesBySite(@Param("site") Site site);
+
+    // Успешно загруженные страницы, сохранённые не раньше since, порциями по возрастанию id
+    @Query("select p from Page p where p.site = :site and p.code = 200 and p.id > :afterId " +
+            "and (p.fetchTime is null or p.fetchTime >= :since) order by p.id")
+    List<Page> findLinkSources(@Param("site") Site site,
+                               @Param("since") LocalDateTime since,
+                               @Param("afterId") int afterId,
+                               Pageable pageable);
+
+    long countBySiteAndCode(Site site, int code);
+
+    // Успешно загруженные страницы сайта порциями по возрастанию id — для переиндексации
+    @Query("select p from Page p where p.site = :site and p.code = 200 and p.id > :afterId order by p.id")
+    List<Page> findIndexable(@Param("site") Site site,
+                             @Param("afterId") int afterId,
+                             Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.fetchTime = :fetchTime where p.id = :id")
+    int updateFetchTime(@Param("id") int id, @Param("fetchTime") LocalDateTime fetchTime);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.code = :code, p.etag = :etag, p.lastModified = :lastModified, " +
+            "p.fetchTime = :fetchTime where p.id = :id")
+    int updateFetchStatus(@Param("id") int id,
+                          @Param("code") int code,
+                          @Param("etag") String etag,
+                          @Param("lastModified") String lastModified,
+                          @Param("fetchTime") LocalDateTime fetchTime);
+
+    // Последний id порции из limit страниц сайта после afterId; null, если страниц больше нет
+    @Query(value = "select max(id) from (select id from page where site_id = :siteId and id > :afterId " +
+            "order by id limit :limit) chunk", nativeQuery = true)
+    Integer findChunkEnd(@Param("siteId") int siteId, @Param("afterId") int afterId, @Param("limit") int limit);
+
+    // Копия сохранённых страниц с id из (afterId, toId] в строку сайта, где строится новый индекс,
+    // без выборки в память
+    @Modifying
+    @Transactional
+    @Query(value = "insert into page (site_id, path, code, content, etag, last_modified, fetch_time, " +
+            "content_hash, simhash, depth) select :targetId, path, code, content, etag, last_modified, " +
+            "fetch_time, content_hash, simhash, depth from page where site_id = :sourceId " +
+            "and id > :afterId and id <= :toId", nativeQuery = true)
+    int copyPages(@Param("sourceId") int sourceId, @Param("targetId") int targetId,
+                  @Param("afterId") int afterId, @Param("toId") int toId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from page where site_id = :siteId limit :limit", nativeQuery = true)
+    int deleteChunkBySite(@Param("siteId") int siteId, @Param("limit") int limit);
+
+    // Тот же текст уже проиндексирован по другому адресу: учитываются только страницы со строками индекса
+    @Query("select case when count(p) > 0 then true else false end from Page p where p.site = :site " +
+            "and p.contentHash = :contentHash and p.path <> :path and p.code = 200 " +
+            "and exists (select i.id from Index i where i.page = p)")
+    boolean existsIndexedCopy(@Param("site") Site site,
+                              @Param("contentHash") String contentHash,
+                              @Param("path") String path);
+
+    // Пары [id, content_hash] проиндексированных страниц — для учёта одинаковых текстов при повторном обходе
+    @Query("select p.id, p.contentHash from Page p where p.site = :site and p.code = 200 " +
+            "and p.contentHash is not null and exists (select i.id from Index i where i.page = p)")
+    List<Object[]> findIndexedContentHashesBySite(@Param("site") Site site);
+
+    // Успешно загруженные страницы без строк индекса, например пропущенные как копии
+    @Query("select p.id from Page p where p.site = :site and p.code = 200 " +
+            "and not exists (select i.id from Index i where i.page = p)")
+    List<Integer> findUnindexedPageIdsBySite(@Param("site") Site site);
+
+    // Пары [id, simhash] проиндексированных страниц для восстановления индекса почти одинаковых страниц:
+    // пропущенные почти копии в нём не участвуют, как и при обходе с нуля
+    @Query("select p.id, p.simhash from Page p where p.site = :site and p.simhash is not null " +
+            "and exists (select i.id from Index i where i.page = p)")
+    List<Object[]> findSimHashesBySite(@Param("site") Site site);
 }
@@ -1,14 +1,57 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.Generation;
 import searchengine.model.Site;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SiteRepository extends JpaRepository<Site, Integer> {
-    Site findFirstByUrl(String url);
+    Site findFirstByUrlAndGenerationNotOrderByIdDesc(String url, Generation generation);
 
-    Site findByUrl(String url);
+    // Последняя неудалённая строка сайта: строящийся индекс, если он есть, иначе текущий
+    default Site findLatestByUrl(String url) {
+        return findFirstByUrlAndGenerationNotOrderByIdDesc(url, Generation.RETIRED);
+    }
+
+    // Строка текущего индекса сайта — та, что видна поиску
+    @Query("select s from Site s where s.url = :url and s.generation = searchengine.model.Generation.CURRENT")
+    Site findByUrl(@Param("url") String url);
+
+    @Query("select s from Site s where s.url = :url and s.generation = searchengine.model.Generation.SHADOW")
+    Site findShadowByUrl(@Param("url") String url);
+
+    List<Site> findByGeneration(Generation generation);
+
+    @Modifying
+    @Transactional
+    @Query("update Site s set s.generation = :generation where s.id = :id")
+    int updateGeneration(@Param("id") int id, @Param("generation") Generation generation);
+
+    // Переключение одним UPDATE: поиск видит либо прежний индекс, либо новый
+    @Modifying
+    @Transactional
+    @Query("update Site s set s.generation = case when s.id = :shadowId then searchengine.model.Generation.CURRENT " +
+            "else searchengine.model.Generation.RETIRED end where s.id in (:shadowId, :currentId)")
+    int cutover(@Param("shadowId") int shadowId, @Param("currentId") int currentId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Site s where s.id = :id and s.generation = searchengine.model.Generation.RETIRED")
+    int deleteRetired(@Param("id") int id);
+
+    @Modifying
+    @Transactional
+    @Query("update Site s set s.statusTime = :statusTime, s.lastError = :lastError where s.id = :id")
+    int updateHeartbeat(@Param("id") int id,
+                        @Param("statusTime") LocalDateTime statusTime,
+                        @Param("lastError") String lastError);
 }
@@ -6,7 +6,14 @@
 
 public interface IndexingService {
     IndexingResponse startIndexing();
+    IndexingResponse startIncrementalIndexing();
+    IndexingResponse resumeIndexing();
+    IndexingResponse replayIndexing();
+    IndexingResponse joinIndexing();
+    IndexingResponse reindex(String siteUrl);
     IndexingResponse stopIndexing();
+    IndexingResponse startSiteIndexing(String siteUrl, boolean incremental);
+    IndexingResponse stopSiteIndexing(String siteUrl);
     IndexingResponse indexPage(String url);
     SiteResponse addSite(SiteRequest siteRequest);
     SiteResponse removeSite(String url);
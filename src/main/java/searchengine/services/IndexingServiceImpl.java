@@ -2,8 +2,6 @@
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
@@ -12,22 +10,40 @@
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.dto.site.SiteRequest;
 import searchengine.dto.site.SiteResponse;
+import searchengine.model.Generation;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Status;
 import searchengine.repository.IndexRepository;
 import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageErrorRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.indexing.ClusterFrontier;
+import searchengine.services.indexing.ContentHash;
+import searchengine.services.indexing.CrawlEngine;
+import searchengine.services.indexing.CrawlMode;
+import searchengine.services.indexing.FetchRejection;
+import searchengine.services.indexing.FetchResult;
+import searchengine.services.indexing.IndexGenerations;
+import searchengine.services.indexing.LinkExtractor;
+import searchengine.services.indexing.PageFailureHandler;
+import searchengine.services.indexing.PageFetcher;
+import searchengine.services.indexing.PageReindexer;
+import searchengine.services.indexing.SiteCrawl;
 import searchengine.services.indexing.SiteMapBuilder;
+import searchengine.services.indexing.SiteStatusTracker;
+import searchengine.services.indexing.UrlCanonicalizer;
+import searchengine.services.indexing.UrlCanonicalizerFactory;
+import searchengine.services.indexing.WarcArchive;
 
 import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
 @Service
@@ -40,7 +56,16 @@ public class IndexingServiceImpl implements IndexingService {
     private final LemmatizationService lemmatizationService;
     private final IndexRepository indexRepository;
     private final LemmaRepository lemmaRepository;
-    private volatile ForkJoinPool forkJoinPool;
+    private final CrawlEngine crawlEngine;
+    private final PageFetcher pageFetcher;
+    private final UrlCanonicalizerFactory urlCanonicalizerFactory;
+    private final SiteStatusTracker siteStatusTracker;
+    private final PageFailureHandler pageFailureHandler;
+    private final PageErrorRepository pageErrorRepository;
+    private final ClusterFrontier clusterFrontier;
+    private final WarcArchive warcArchive;
+    private final PageReindexer pageReindexer;
+    private final IndexGenerations indexGenerations;
 
 
     @Override
@@ -49,57 +74,268 @@ public IndexingResponse startIndexing() {
             return new IndexingResponse(false, "Индексация уже запущена");
         }
 
-        // Безопасная очистка БД: сначала индексы, затем страницы, затем леммы и сайты
-        try {
-            indexRepository.deleteAll();
-            pageRepository.deleteAll();
-            lemmaRepository.deleteAll();
-            siteRepository.deleteAll();
-        } catch (Exception e) {
-            log.error("Ошибка при очистке БД перед индексацией", e);
-            return new IndexingResponse(false, "Не удалось очистить БД перед индексацией: " + e.getMessage());
+        return startFromScratch(sitesList.getSites(), CrawlMode.FULL);
+    }
+
+    /**
+     * Пересобирает индекс из архива WARC без обращения к сайтам: как и при полной индексации,
+     * индекс строится заново, а страницы берутся из сохранённых ответов.
+     * Сайты без архива не индексируются.
+     */
+    @Override
+    public IndexingResponse replayIndexing() {
+        if (isIndexingRunning()) {
+            return new IndexingResponse(false, "Индексация уже запущена");
+        }
+        List<Site> archived = new ArrayList<>();
+        for (Site configSite : sitesList.getSites()) {
+            if (warcArchive.hasArchive(configSite.getUrl())) {
+                archived.add(configSite);
+            }
+        }
+        if (archived.isEmpty()) {
+            return new IndexingResponse(false, "Нет архива WARC ни для одного сайта");
+        }
+        return startFromScratch(archived, CrawlMode.REPLAY);
+    }
+
+    /**
+     * БД не очищается: каждый сайт строится в новой строке, а поиск до переключения
+     * читает прежний индекс ({@link IndexGenerations}). Сайты, которых нет в конфигурации,
+     * убираются из поиска и удаляются в фоне.
+     */
+    private IndexingResponse startFromScratch(List<Site> sites, CrawlMode mode) {
+        List<String> configured = new ArrayList<>();
+        for (Site configSite : sitesList.getSites()) {
+            configured.add(configSite.getUrl());
+        }
+        indexGenerations.retireUnlisted(configured);
+
+        List<SiteMapBuilder> crawls = new ArrayList<>();
+        for (Site configSite : sites) {
+            searchengine.model.Site siteEntity = indexGenerations.createBuild(configSite.getUrl(), configSite.getName());
+
+            crawls.add(createSiteMapBuilder(new SiteCrawl(siteEntity, configSite, mode)));
         }
 
-        SiteMapBuilder.resetIndexing();
+        crawlEngine.start(crawls);
+
+        return new IndexingResponse(true);
+    }
 
-        forkJoinPool = new ForkJoinPool();
+    @Override
+    public IndexingResponse startIncrementalIndexing() {
+        if (isIndexingRunning()) {
+            return new IndexingResponse(false, "Индексация уже запущена");
+        }
 
+        // БД не очищается: сохранённые страницы проверяются условными запросами
+        List<SiteMapBuilder> crawls = new ArrayList<>();
         for (Site configSite : sitesList.getSites()) {
-            searchengine.model.Site siteEntity = new searchengine.model.Site();
-            siteEntity.setUrl(configSite.getUrl());
-            siteEntity.setName(configSite.getName());
+            searchengine.model.Site siteEntity = siteRepository.findByUrl(configSite.getUrl());
+            if (siteEntity == null) {
+                siteEntity = new searchengine.model.Site();
+                siteEntity.setUrl(configSite.getUrl());
+                siteEntity.setName(configSite.getName());
+            } else {
+                // Ошибки страниц относятся к последнему обходу
+                pageErrorRepository.deleteBySite(siteEntity);
+            }
             siteEntity.setStatus(Status.INDEXING);
             siteEntity.setStatusTime(LocalDateTime.now());
+            siteEntity.setLastError(null);
             siteRepository.save(siteEntity);
 
-            SiteMapBuilder siteMapBuilder = new SiteMapBuilder(
-                    configSite.getUrl(),
-                    siteEntity,
-                    siteRepository,
-                    pageRepository,
-                    lemmatizationService,
-                    lemmaRepository,
-                    indexRepository
-            );
+            crawls.add(createSiteMapBuilder(new SiteCrawl(siteEntity, configSite, CrawlMode.INCREMENTAL)));
+        }
+
+        crawlEngine.start(crawls);
+
+        return new IndexingResponse(true);
+    }
+
+    @Override
+    public IndexingResponse resumeIndexing() {
+        // После перезапуска сайты остаются в статусе INDEXING, поэтому проверяем сам движок
+        if (crawlEngine.isRunning()) {
+            return new IndexingResponse(false, "Индексация уже запущена");
+        }
+
+        List<SiteMapBuilder> crawls = new ArrayList<>();
+        for (Site configSite : sitesList.getSites()) {
+            searchengine.model.Site siteEntity = indexingRow(configSite.getUrl());
+            if (siteEntity == null || !siteEntity.getStatus().equals(Status.INDEXING)) {
+                continue;
+            }
+            siteEntity.setStatusTime(LocalDateTime.now());
+            siteRepository.save(siteEntity);
 
-            forkJoinPool.execute(siteMapBuilder);
+            crawls.add(createSiteMapBuilder(new SiteCrawl(siteEntity, configSite, CrawlMode.RESUME)));
+        }
+        if (crawls.isEmpty()) {
+            return new IndexingResponse(false, "Нет прерванной индексации");
         }
 
-        new Thread(this::monitorIndexing).start();
+        crawlEngine.start(crawls);
+
+        return new IndexingResponse(true);
+    }
 
+    /**
+     * Подключает этот узел к обходам, которые идут на других узлах кластера:
+     * сайты в статусе INDEXING, в общей очереди которых есть URL для обработки.
+     */
+    @Override
+    public IndexingResponse joinIndexing() {
+        if (!clusterFrontier.isEnabled()) {
+            return new IndexingResponse(false, "Узел не работает в кластере");
+        }
+        List<SiteMapBuilder> crawls = new ArrayList<>();
+        for (Site configSite : sitesList.getSites()) {
+            searchengine.model.Site siteEntity = indexingRow(configSite.getUrl());
+            if (siteEntity == null || siteEntity.getStatus() != Status.INDEXING
+                    || crawlEngine.isCrawling(siteEntity) || !clusterFrontier.hasClaimableWork(siteEntity)) {
+                continue;
+            }
+            crawls.add(createSiteMapBuilder(new SiteCrawl(siteEntity, configSite, CrawlMode.JOIN)));
+        }
+        if (crawls.isEmpty()) {
+            return new IndexingResponse(false, "Нет обхода, к которому можно подключиться");
+        }
+        crawlEngine.start(crawls);
         return new IndexingResponse(true);
     }
 
+    /**
+     * Пересобирает леммы и индекс из сохранённого HTML страниц без обхода сайтов;
+     * поиск до переключения читает прежний индекс.
+     *
+     * @param siteUrl сайт из конфигурации или null — все уже проиндексированные сайты
+     */
+    @Override
+    public IndexingResponse reindex(String siteUrl) {
+        if (siteUrl == null && isIndexingRunning()) {
+            return new IndexingResponse(false, "Индексация уже запущена");
+        }
+        List<searchengine.model.Site> sites = new ArrayList<>();
+        for (Site configSite : sitesList.getSites()) {
+            if (siteUrl != null && !sameUrl(configSite.getUrl(), siteUrl)) {
+                continue;
+            }
+            searchengine.model.Site siteEntity = siteRepository.findByUrl(configSite.getUrl());
+            if (siteEntity != null) {
+                if (indexingRow(configSite.getUrl()).getStatus() == Status.INDEXING) {
+                    return new IndexingResponse(false, "Индексация сайта уже запущена");
+                }
+                sites.add(siteEntity);
+            }
+        }
+        if (sites.isEmpty()) {
+            return new IndexingResponse(false, siteUrl != null
+                    ? "Сайт не найден среди проиндексированных сайтов из конфигурации"
+                    : "Нет проиндексированных сайтов");
+        }
+        pageReindexer.start(sites);
+        return new IndexingResponse(true);
+    }
+
+    /**
+     * Обходит заново один сайт из конфигурации. Обходы других сайтов продолжаются,
+     * их данные не трогаются. Полный обход строит новый индекс сайта, пока поиск читает
+     * прежний; повторный обход обновляет текущий индекс на месте.
+     */
+    @Override
+    public IndexingResponse startSiteIndexing(String siteUrl, boolean incremental) {
+        Site configSite = findConfigSite(siteUrl);
+        if (configSite == null) {
+            return new IndexingResponse(false, "Сайт не найден в конфигурации");
+        }
+        searchengine.model.Site siteEntity = indexingRow(configSite.getUrl());
+        if (siteEntity != null && (siteEntity.getStatus() == Status.INDEXING || crawlEngine.isCrawling(siteEntity))) {
+            return new IndexingResponse(false, "Индексация сайта уже запущена");
+        }
+        siteEntity = siteRepository.findByUrl(configSite.getUrl());
+        if (!incremental || siteEntity == null) {
+            siteEntity = indexGenerations.createBuild(configSite.getUrl(), configSite.getName());
+        } else {
+            pageErrorRepository.deleteBySite(siteEntity);
+            siteEntity.setStatus(Status.INDEXING);
+            siteEntity.setStatusTime(LocalDateTime.now());
+            siteEntity.setLastError(null);
+            siteRepository.save(siteEntity);
+        }
+
+        crawlEngine.start(List.of(createSiteMapBuilder(new SiteCrawl(siteEntity, configSite,
+                incremental ? CrawlMode.INCREMENTAL : CrawlMode.FULL))));
+        return new IndexingResponse(true);
+    }
+
+    /**
+     * Останавливает обход или переиндексацию одного сайта, остальные продолжаются.
+     */
+    @Override
+    public IndexingResponse stopSiteIndexing(String siteUrl) {
+        Site configSite = findConfigSite(siteUrl);
+        searchengine.model.Site siteEntity = configSite != null ? indexingRow(configSite.getUrl()) : null;
+        if (siteEntity == null || siteEntity.getStatus() != Status.INDEXING) {
+            return new IndexingResponse(false, "Индексация сайта не запущена");
+        }
+        crawlEngine.stop(siteEntity);
+        pageReindexer.stop(siteEntity);
+
+        siteEntity.setStatus(Status.FAILED);
+        siteEntity.setLastError("Индексация остановлена пользователем");
+        siteEntity.setStatusTime(LocalDateTime.now());
+        siteRepository.save(siteEntity);
+        // Недостроенный индекс удаляется, поиск остаётся на прежнем
+        indexGenerations.finish(siteEntity);
+        return new IndexingResponse(true);
+    }
+
+    /**
+     * Строка, в которой идёт или последней шла индексация сайта: строящийся индекс,
+     * если он есть, иначе текущий.
+     */
+    private searchengine.model.Site indexingRow(String url) {
+        searchengine.model.Site shadow = siteRepository.findShadowByUrl(url);
+        return shadow != null ? shadow : siteRepository.findByUrl(url);
+    }
+
+    private Site findConfigSite(String siteUrl) {
+        for (Site configSite : sitesList.getSites()) {
+            if (sameUrl(configSite.getUrl(), siteUrl)) {
+                return configSite;
+            }
+        }
+        return null;
+    }
+
+    private boolean sameUrl(String configUrl, String siteUrl) {
+        return trimTrailingSlash(configUrl).equals(trimTrailingSlash(siteUrl.trim()));
+    }
+
+    private SiteMapBuilder createSiteMapBuilder(SiteCrawl crawl) {
+        return new SiteMapBuilder(
+                crawl,
+                pageRepository,
+                lemmatizationService,
+                lemmaRepository,
+                indexRepository,
+                pageFetcher,
+                urlCanonicalizerFactory.forSite(crawl.getSettings()),
+                siteStatusTracker,
+                pageFailureHandler
+        );
+    }
+
     @Override
     public IndexingResponse stopIndexing() {
         if (!isIndexingRunning()) {
             return new IndexingResponse(false, "Индексация не запущена");
         }
 
-        SiteMapBuilder.stopIndexing();
-        if (forkJoinPool != null) {
-            forkJoinPool.shutdownNow();
-        }
+        crawlEngine.stop();
+        pageReindexer.stop();
 
         siteRepository.findAll().forEach(site -> {
             if (site.getStatus().equals(Status.INDEXING)) {
@@ -107,6 +343,7 @@ public IndexingResponse stopIndexing() {
                 site.setLastError("Индексация остановлена пользователем");
                 site.setStatusTime(LocalDateTime.now());
                 siteRepository.save(site);
+                indexGenerations.finish(site);
             }
         });
 
@@ -143,6 +380,14 @@ public IndexingResponse indexPage(String url) {
             return new IndexingResponse(false, "Данный URL находится за пределами сайтов, указанных в конфигурации");
         }
 
+        // Текущая строка сайта будет выведена из поиска, когда сборка нового индекса закончится,
+        // и страница, записанная в неё, пропала бы вместе с ней
+        searchengine.model.Site shadow = siteRepository.findShadowByUrl(configSite.getUrl());
+        if (shadow != null && shadow.getStatus() == Status.INDEXING) {
+            return new IndexingResponse(false,
+                    "Идёт построение нового индекса сайта, страницу можно будет добавить после его завершения");
+        }
+
         try {
             // Получаем или создаём сайт в БД
             searchengine.model.Site siteEntity = siteRepository.findByUrl(configSite.getUrl());
@@ -155,15 +400,48 @@ public IndexingResponse indexPage(String url) {
                 siteRepository.save(siteEntity);
             }
 
-            // Вычисляем относительный путь
-            String normalizedSiteUrl = trimTrailingSlash(configSite.getUrl());
-            String normalizedUrl = trimTrailingSlash(url);
-            String path = normalizedUrl.replaceFirst("^" + java.util.regex.Pattern.quote(normalizedSiteUrl), "");
-            if (path.isEmpty()) {
-                path = "/";
+            // Путь считается по ключу канонического URL, как при обходе сайта;
+            // загружается сам канонический URL, без сворачивания index.html и слэша
+            UrlCanonicalizer canonicalizer = urlCanonicalizerFactory.forSite(configSite);
+            String canonicalUrl = canonicalizer.canonicalize(url);
+            if (canonicalUrl == null) {
+                return new IndexingResponse(false, "Некорректный URL: " + url);
             }
+            String siteRoot = canonicalizer.canonicalize(configSite.getUrl());
+            siteRoot = trimTrailingSlash(siteRoot != null ? siteRoot : configSite.getUrl());
+            String path = pathOf(canonicalizer.dedupKey(canonicalUrl), siteRoot);
 
             Page existingPage = pageRepository.findBySiteAndPath(siteEntity, path);
+
+            // Загружаем страницу
+            FetchResult response = pageFetcher.fetch(canonicalUrl);
+            if (response.getRejection() == FetchRejection.CONTENT_TYPE) {
+                return new IndexingResponse(false, "Страница не является HTML-документом: " + response.getContentType());
+            }
+            if (response.getRejection() == FetchRejection.TOO_LARGE) {
+                return new IndexingResponse(false, "Страница больше допустимого размера");
+            }
+
+            Document document = response.parse();
+            // Страница с <link rel="canonical"> на другой адрес сайта сохраняется под этим адресом
+            String declaredUrl = new LinkExtractor(canonicalizer, configSite.getUrl()).canonicalOf(document);
+            if (declaredUrl != null && !canonicalizer.dedupKey(declaredUrl).equals(canonicalizer.dedupKey(canonicalUrl))) {
+                path = pathOf(canonicalizer.dedupKey(declaredUrl), siteRoot);
+                existingPage = pageRepository.findBySiteAndPath(siteEntity, path);
+            }
+
+            String content = document.html();
+            String cleanContent = lemmatizationService.cleanHtmlContent(content);
+            String contentHash = ContentHash.of(cleanContent);
+
+            if (existingPage != null && contentHash.equals(existingPage.getContentHash())
+                    && existingPage.getCode() == response.getStatusCode()) {
+                // Текст не изменился: обновляем только служебные поля без переиндексации
+                pageRepository.updateFetchStatus(existingPage.getId(), response.getStatusCode(),
+                        response.getEtag(), response.getLastModified(), LocalDateTime.now());
+                return new IndexingResponse(true);
+            }
+
             if (existingPage != null) {
                 // Удаляем связанные индексы и корректируем частоты лемм
                 List<Index> indices = indexRepository.findByPage(existingPage);
@@ -180,24 +458,25 @@ public IndexingResponse indexPage(String url) {
                 pageRepository.delete(existingPage);
             }
 
-            // Загружаем и сохраняем страницу
-            Connection.Response response = Jsoup.connect(url)
-                    .userAgent("HeliontSearchBot")
-                    .timeout(10000)
-                    .execute();
-
-            Document document = response.parse();
-            String content = document.html();
-
+            // Сохраняем страницу
             Page page = new Page();
             page.setSite(siteEntity);
             page.setPath(path);
-            page.setCode(response.statusCode());
+            page.setCode(response.getStatusCode());
             page.setContent(content);
+            page.setEtag(response.getEtag());
+            page.setLastModified(response.getLastModified());
+            page.setFetchTime(LocalDateTime.now());
+            page.setContentHash(contentHash);
             pageRepository.save(page);
 
-            if (response.statusCode() == 200) {
-                indexPageContent(page, content, siteEntity);
+            if (response.getStatusCode() == 200) {
+                if (pageRepository.existsIndexedCopy(siteEntity, contentHash, path)) {
+                    // Тот же текст уже проиндексирован по другому адресу
+                    log.info("Страница {} совпадает по содержимому с уже проиндексированной, индексация пропущена", url);
+                } else {
+                    indexPageContent(page, cleanContent, siteEntity);
+                }
             }
 
             return new IndexingResponse(true);
@@ -212,9 +491,8 @@ private String normalizeHost(String h) {
         return lower.startsWith("www.") ? lower.substring(4) : lower;
     }
 
-    private void indexPageContent(Page page, String content, searchengine.model.Site configSite) {
+    private void indexPageContent(Page page, String cleanContent, searchengine.model.Site configSite) {
         try {
-            String cleanContent = lemmatizationService.cleanHtmlContent(content);
             Map<String, Integer> lemmas = lemmatizationService.getLemmas(cleanContent);
 
             for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
@@ -261,6 +539,12 @@ private void indexPageContent(Page page, String content, searchengine.model.Site
         }
     }
 
+    private String pathOf(String canonicalUrl, String siteRoot) {
+        String normalizedUrl = trimTrailingSlash(canonicalUrl);
+        String path = normalizedUrl.startsWith(siteRoot) ? normalizedUrl.substring(siteRoot.length()) : normalizedUrl;
+        return path.isEmpty() ? "/" : path;
+    }
+
     private String trimTrailingSlash(String value) {
         if (value == null) return null;
         return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
@@ -268,33 +552,9 @@ private String trimTrailingSlash(String value) {
 
     private boolean isIndexingRunning() {
         return siteRepository.findAll().stream()
-                .anyMatch(site -> site.getStatus().equals(Status.INDEXING));
+                .anyMatch(site -> site.getGeneration() != Generation.RETIRED && site.getStatus().equals(Status.INDEXING));
     }
 
-    private void monitorIndexing() {
-        try {
-            if (forkJoinPool != null) {
-                ForkJoinPool pool = forkJoinPool;
-                // Ждём пока пул будет в состоянии покоя
-                while (!(pool.isQuiescent() && pool.getActiveThreadCount() == 0 &&
-                        pool.getQueuedSubmissionCount() == 0 && pool.getQueuedTaskCount() == 0)) {
-                    Thread.sleep(500);
-                }
-                pool.shutdown();
-
-                siteRepository.findAll().forEach(site -> {
-                    if (site.getStatus().equals(Status.INDEXING)) {
-                        site.setStatus(Status.INDEXED);
-                        site.setStatusTime(LocalDateTime.now());
-                        siteRepository.save(site);
-                    }
-                });
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-    
     @Override
     public SiteResponse addSite(SiteRequest siteRequest) {
         if (siteRequest.getUrl() == null || siteRequest.getUrl().trim().isEmpty()) {
@@ -349,7 +609,7 @@ public SiteResponse removeSite(String url) {
         }
         
         // Check if indexing is running for this site
-        searchengine.model.Site siteEntity = siteRepository.findByUrl(normalizedUrl);
+        searchengine.model.Site siteEntity = indexingRow(normalizedUrl);
         if (siteEntity != null && siteEntity.getStatus().equals(Status.INDEXING)) {
             return new SiteResponse(false, "Невозможно удалить сайт: индексация в процессе. Остановите индексацию перед удалением.");
         }
@@ -6,6 +6,7 @@
 import searchengine.config.SitesList;
 import searchengine.dto.search.SearchData;
 import searchengine.dto.search.SearchResponse;
+import searchengine.model.Generation;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
@@ -82,7 +83,10 @@ public SearchResponse search(String query, String site, int offset, int limit) {
 
     private List<searchengine.model.Site> getSitesToSearch(String siteUrl) {
         if (siteUrl == null || siteUrl.trim().isEmpty()) {
-            return siteRepository.findAll();
+            // Строящиеся и удаляемые индексы поиску не видны
+            return siteRepository.findAll().stream()
+                    .filter(site -> site.getGeneration() == Generation.CURRENT)
+                    .collect(Collectors.toList());
         }
 
         Site site = siteRepository.findByUrl(siteUrl);
@@ -4,15 +4,35 @@
 import org.springframework.stereotype.Service;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.dto.statistics.ClusterStatistics;
+import searchengine.dto.statistics.CrawlStatistics;
 import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.HostStatistics;
+import searchengine.dto.statistics.PipelineStageStatistics;
+import searchengine.dto.statistics.PurgeStatistics;
+import searchengine.dto.statistics.ReindexStatistics;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
+import searchengine.model.Generation;
 import searchengine.model.Status;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.indexing.AdaptiveHostLimiter;
+import searchengine.services.indexing.ClusterFrontier;
+import searchengine.services.indexing.ClusterProgress;
+import searchengine.services.indexing.CrawlPipeline;
+import searchengine.services.indexing.HostLimitSnapshot;
+import searchengine.services.indexing.PageReindexer;
+import searchengine.services.indexing.PipelineStageSnapshot;
+import searchengine.services.indexing.PurgeProgress;
+import searchengine.services.indexing.ReindexProgress;
+import searchengine.services.indexing.SiteProgressSnapshot;
+import searchengine.services.indexing.SitePurger;
+import searchengine.services.indexing.SiteStatusTracker;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +45,12 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
+    private final AdaptiveHostLimiter hostLimiter;
+    private final SiteStatusTracker siteStatusTracker;
+    private final CrawlPipeline crawlPipeline;
+    private final ClusterFrontier clusterFrontier;
+    private final PageReindexer pageReindexer;
+    private final SitePurger sitePurger;
 
 
     @Override
@@ -34,11 +60,12 @@ public StatisticsResponse getStatistics() {
         total.setPages(pageRepository.getTotalPages());
         total.setIndexing(isIndexingRunning());
         total.setLemmas((int) lemmaRepository.getTotalLemmas());
+        total.setPurge(purgeStatistics());
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
 
         for (Site configSite : sites.getSites()) {
-            searchengine.model.Site siteEntity = siteRepository.findFirstByUrl(configSite.getUrl());
+            searchengine.model.Site siteEntity = siteRepository.findLatestByUrl(configSite.getUrl());
 
             DetailedStatisticsItem item = new DetailedStatisticsItem();
             item.setName(configSite.getName());
@@ -50,6 +77,11 @@ public StatisticsResponse getStatistics() {
                 item.setError(siteEntity.getLastError() != null ? siteEntity.getLastError() : "");
                 item.setPages(pageRepository.countBySite(siteEntity));
                 item.setLemmas(lemmaRepository.countBySite(siteEntity));
+                item.setCrawl(crawlStatistics(siteEntity.getId()));
+                item.setReindex(reindexStatistics(siteEntity.getId()));
+                if (clusterFrontier.isEnabled() && siteEntity.getStatus() == Status.INDEXING) {
+                    item.setCluster(clusterStatistics(siteEntity));
+                }
             } else  {
                 item.setStatus("NOT_INDEXED");
                 item.setStatusTime(LocalDateTime.now());
@@ -58,6 +90,8 @@ public StatisticsResponse getStatistics() {
                 item.setLemmas(0);
             }
 
+            item.setHost(hostStatistics(configSite.getUrl()));
+
             detailed.add(item);
         }
 
@@ -66,14 +100,109 @@ public StatisticsResponse getStatistics() {
         data.setTotal(total);
         data.setDetailed(detailed);
         data.setIndexing(total.isIndexing());
+        data.setPipeline(pipelineStatistics());
 
         response.setResult(true);
         response.setStatistics(data);
         return response;
     }
 
+    private List<PipelineStageStatistics> pipelineStatistics() {
+        List<PipelineStageStatistics> stages = new ArrayList<>();
+        for (PipelineStageSnapshot snapshot : crawlPipeline.snapshot()) {
+            PipelineStageStatistics stage = new PipelineStageStatistics();
+            stage.setStage(snapshot.getName());
+            stage.setThreads(snapshot.getThreads());
+            stage.setActive(snapshot.getActive());
+            stage.setQueued(snapshot.getQueued());
+            stage.setQueueCapacity(snapshot.getQueueCapacity());
+            stage.setProcessed(snapshot.getProcessed());
+            stage.setPerSecond(snapshot.getPerSecond());
+            stage.setAverageMs(snapshot.getAverageMs());
+            stages.add(stage);
+        }
+        return stages;
+    }
+
+    private ClusterStatistics clusterStatistics(searchengine.model.Site siteEntity) {
+        ClusterProgress progress = clusterFrontier.progress(siteEntity);
+        ClusterStatistics cluster = new ClusterStatistics();
+        cluster.setQueued(progress.getQueued());
+        cluster.setLeased(progress.getLeased());
+        cluster.setDone(progress.getDone());
+        cluster.setNodes(progress.getNodes());
+        return cluster;
+    }
+
+    private ReindexStatistics reindexStatistics(int siteId) {
+        ReindexProgress progress = pageReindexer.progress(siteId);
+        if (progress == null) {
+            return null;
+        }
+        ReindexStatistics reindex = new ReindexStatistics();
+        reindex.setTotal(progress.getTotal());
+        reindex.setProcessed(progress.getProcessed());
+        reindex.setIndexed(progress.getIndexed());
+        reindex.setDuplicates(progress.getDuplicates());
+        reindex.setErrors(progress.getErrors());
+        reindex.setLemmas(progress.getLemmas());
+        reindex.setPagesPerSecond(progress.getPagesPerSecond());
+        reindex.setFinished(progress.isFinished());
+        return reindex;
+    }
+
+    private CrawlStatistics crawlStatistics(int siteId) {
+        SiteProgressSnapshot snapshot = siteStatusTracker.snapshot(siteId);
+        if (snapshot == null) {
+            return null;
+        }
+        CrawlStatistics crawl = new CrawlStatistics();
+        crawl.setPagesProcessed(snapshot.getPages());
+        crawl.setErrors(snapshot.getErrors());
+        crawl.setRetries(snapshot.getRetries());
+        crawl.setPagesPerSecond(snapshot.getPagesPerSecond());
+        crawl.setAveragePagesPerSecond(snapshot.getAveragePagesPerSecond());
+        crawl.setQueued(snapshot.getQueued());
+        crawl.setInProgress(snapshot.getInProgress());
+        crawl.setWeight(snapshot.getWeight());
+        crawl.setShare(snapshot.getShare());
+        return crawl;
+    }
+
+    private HostStatistics hostStatistics(String siteUrl) {
+        HostLimitSnapshot snapshot;
+        try {
+            snapshot = hostLimiter.snapshot(new URI(siteUrl).getHost());
+        } catch (Exception e) {
+            return null;
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        HostStatistics host = new HostStatistics();
+        host.setConcurrencyLimit(snapshot.getConcurrencyLimit());
+        host.setInFlight(snapshot.getInFlight());
+        host.setLatencyMs(snapshot.getLatencyMs());
+        host.setCircuit(snapshot.getCircuit());
+        host.setRetryAfterMs(snapshot.getRetryAfterMs());
+        return host;
+    }
+
+    private PurgeStatistics purgeStatistics() {
+        PurgeProgress progress = sitePurger.progress();
+        if (progress == null) {
+            return null;
+        }
+        PurgeStatistics purge = new PurgeStatistics();
+        purge.setUrl(progress.getUrl());
+        purge.setTable(progress.getTable());
+        purge.setDeleted(progress.getDeleted());
+        purge.setRowsPerSecond(progress.getRowsPerSecond());
+        return purge;
+    }
+
     private boolean isIndexingRunning() {
         return siteRepository.findAll().stream()
-                .anyMatch(s -> s.getStatus().equals(Status.INDEXING));
+                .anyMatch(s -> s.getGeneration() != Generation.RETIRED && s.getStatus().equals(Status.INDEXING));
     }
 }
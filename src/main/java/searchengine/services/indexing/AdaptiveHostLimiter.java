@@ -0,0 +1,252 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Адаптивное ограничение числа одновременных запросов к хосту (AIMD).
+ * Пока ответы быстрые и без ошибок, лимит растёт примерно на единицу за «окно»
+ * (+1/limit за каждый успешный ответ); таймаут, 429 или 503 уменьшают его вдвое,
+ * а Retry-After приостанавливает запросы к хосту на указанное время.
+ * Подряд идущие сбои размыкают предохранитель (circuit breaker): хост не опрашивается
+ * breaker-open-seconds, затем пропускается один пробный запрос.
+ * <p>
+ * Работает вместе с {@link HostPolitenessScheduler}: тот ограничивает частоту запросов,
+ * этот — сколько страниц хоста обрабатывается одновременно.
+ */
+@Slf4j
+@Component
+public class AdaptiveHostLimiter {
+
+    private static final long BUSY_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_OPEN_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final CrawlerSettings crawlerSettings;
+    private final ConcurrentMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public AdaptiveHostLimiter(CrawlerSettings crawlerSettings) {
+        this.crawlerSettings = crawlerSettings;
+    }
+
+    /**
+     * @return 0, если можно начать обработку страницы хоста (после неё нужен {@link #release(String)}),
+     * иначе — через сколько наносекунд стоит попробовать снова
+     */
+    public long tryAcquire(String host) {
+        return state(host).tryAcquire(System.nanoTime());
+    }
+
+    public void release(String host) {
+        HostState state = hosts.get(key(host));
+        if (state != null) {
+            state.release();
+        }
+    }
+
+    /**
+     * Учитывает ответ сервера.
+     *
+     * @param latencyNanos время до получения заголовков ответа
+     * @param retryAfter   значение заголовка Retry-After или null
+     */
+    public void recordResponse(String host, long latencyNanos, int statusCode, String retryAfter) {
+        HostState state = state(host);
+        long now = System.nanoTime();
+        if (statusCode == 429 || statusCode == 503) {
+            long pause = parseRetryAfter(retryAfter);
+            state.onOverload(now, latencyNanos, pause);
+            log.debug("Хост {} перегружен ({}), лимит {}, пауза {} мс",
+                    host, statusCode, state.limit(), TimeUnit.NANOSECONDS.toMillis(pause));
+        } else if (statusCode >= 500) {
+            state.onFailure(now, latencyNanos, false);
+        } else {
+            state.onSuccess(latencyNanos);
+        }
+    }
+
+    /**
+     * Учитывает запрос, который завершился без ответа: таймаут или ошибка соединения.
+     */
+    public void recordFailure(String host, long latencyNanos, boolean timeout) {
+        state(host).onFailure(System.nanoTime(), latencyNanos, timeout);
+    }
+
+    /**
+     * @return состояние хоста или null, если к нему ещё не было запросов
+     */
+    public HostLimitSnapshot snapshot(String host) {
+        HostState state = hosts.get(key(host));
+        return state != null ? state.snapshot(System.nanoTime()) : null;
+    }
+
+    public void clear() {
+        hosts.clear();
+    }
+
+    private HostState state(String host) {
+        return hosts.computeIfAbsent(key(host), k -> new HostState(k));
+    }
+
+    private String key(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Retry-After: число секунд или HTTP-дата. Пауза ограничена сверху max-retry-after-seconds.
+     */
+    long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        long seconds;
+        try {
+            seconds = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                seconds = Duration.between(ZonedDateTime.now(date.getZone()), date).getSeconds();
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+        seconds = Math.min(Math.max(seconds, 0), crawlerSettings.getMaxRetryAfterSeconds());
+        return TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    private final class HostState {
+        private final String host;
+        private double limit;
+        private int inFlight;
+        private double latencyMs = -1;
+        private long blockedUntil;
+        private long lastDecrease;
+        private Circuit circuit = Circuit.CLOSED;
+        private long openUntil;
+        private int opens;
+        private int consecutiveFailures;
+        private boolean probeInFlight;
+
+        private HostState(String host) {
+            this.host = host;
+            this.limit = Math.max(1, crawlerSettings.getHostInitialConcurrency());
+            // У System.nanoTime() произвольное начало отсчёта, поэтому нули здесь не подходят
+            long now = System.nanoTime();
+            this.blockedUntil = now;
+            this.lastDecrease = now - TimeUnit.HOURS.toNanos(1);
+        }
+
+        private synchronized long tryAcquire(long now) {
+            if (now < blockedUntil) {
+                return blockedUntil - now;
+            }
+            if (circuit == Circuit.OPEN) {
+                if (now < openUntil) {
+                    return openUntil - now;
+                }
+                circuit = Circuit.HALF_OPEN;
+            }
+            if (circuit == Circuit.HALF_OPEN) {
+                if (probeInFlight) {
+                    return BUSY_WAIT_NANOS;
+                }
+                probeInFlight = true;
+                inFlight++;
+                return 0;
+            }
+            if (inFlight >= (int) limit) {
+                return BUSY_WAIT_NANOS;
+            }
+            inFlight++;
+            return 0;
+        }
+
+        private synchronized void release() {
+            inFlight = Math.max(0, inFlight - 1);
+            // Пробный запрос мог не состояться (остановка, пустая очередь)
+            probeInFlight = false;
+        }
+
+        private synchronized void onSuccess(long latencyNanos) {
+            updateLatency(latencyNanos);
+            consecutiveFailures = 0;
+            if (circuit == Circuit.HALF_OPEN) {
+                circuit = Circuit.CLOSED;
+                opens = 0;
+                log.info("Хост {} снова отвечает, предохранитель замкнут", host);
+            }
+            if (latencyMs <= crawlerSettings.getHostLatencyTargetMs()) {
+                limit = Math.min(crawlerSettings.getHostMaxConcurrency(), limit + 1.0 / limit);
+            }
+        }
+
+        private synchronized void onOverload(long now, long latencyNanos, long pauseNanos) {
+            updateLatency(latencyNanos);
+            decrease(now);
+            if (pauseNanos > 0) {
+                blockedUntil = Math.max(blockedUntil, now + pauseNanos);
+            }
+            if (circuit == Circuit.HALF_OPEN) {
+                open(now);
+            }
+        }
+
+        private synchronized void onFailure(long now, long latencyNanos, boolean timeout) {
+            updateLatency(latencyNanos);
+            if (timeout) {
+                decrease(now);
+            }
+            consecutiveFailures++;
+            if (circuit == Circuit.HALF_OPEN || consecutiveFailures >= crawlerSettings.getBreakerFailureThreshold()) {
+                open(now);
+            }
+        }
+
+        private void decrease(long now) {
+            // Одна серия отказов уменьшает лимит один раз, а не на каждый запрос из неё
+            long window = Math.max(TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos((long) latencyMs));
+            if (now - lastDecrease < window) {
+                return;
+            }
+            limit = Math.max(1, limit / 2);
+            lastDecrease = now;
+        }
+
+        private void open(long now) {
+            opens++;
+            long duration = TimeUnit.SECONDS.toNanos(crawlerSettings.getBreakerOpenSeconds()) << Math.min(opens - 1, 10);
+            openUntil = now + Math.min(duration, MAX_OPEN_NANOS);
+            circuit = Circuit.OPEN;
+            consecutiveFailures = 0;
+            log.warn("Хост {} не отвечает, предохранитель разомкнут на {} с",
+                    host, TimeUnit.NANOSECONDS.toSeconds(openUntil - now));
+        }
+
+        private void updateLatency(long latencyNanos) {
+            double ms = latencyNanos / 1_000_000.0;
+            latencyMs = latencyMs < 0 ? ms : latencyMs + LATENCY_SMOOTHING * (ms - latencyMs);
+        }
+
+        private synchronized int limit() {
+            return (int) limit;
+        }
+
+        private synchronized HostLimitSnapshot snapshot(long now) {
+            Circuit current = circuit == Circuit.OPEN && now >= openUntil ? Circuit.HALF_OPEN : circuit;
+            return new HostLimitSnapshot((int) limit, inFlight, Math.round(Math.max(latencyMs, 0)),
+                    current.name(), Math.max(0, TimeUnit.NANOSECONDS.toMillis(blockedUntil - now)));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.dto.indexing.IndexingResponse;
+import searchengine.services.IndexingService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * В кластере периодически подключает узел к обходам, начатым на других узлах,
+ * в том числе после перезапуска: URL с истёкшей арендой снова доступны.
+ */
+@Slf4j
+@Component
+public class ClusterCoordinator {
+
+    private final CrawlerSettings crawlerSettings;
+    private final IndexingService indexingService;
+    private ScheduledExecutorService scheduler;
+
+    public ClusterCoordinator(CrawlerSettings crawlerSettings, IndexingService indexingService) {
+        this.crawlerSettings = crawlerSettings;
+        this.indexingService = indexingService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!crawlerSettings.isCluster()) {
+            return;
+        }
+        int interval = Math.max(1, crawlerSettings.getClusterJoinIntervalSeconds());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-cluster-join");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::join, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void join() {
+        try {
+            IndexingResponse response = indexingService.joinIndexing();
+            if (response.isResult()) {
+                log.info("Узел подключился к обходу, который идёт в кластере");
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось подключиться к обходу кластера: {}", e.getMessage());
+        }
+    }
+}
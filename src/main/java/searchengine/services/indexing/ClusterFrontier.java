@@ -0,0 +1,263 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.FrontierStatus;
+import searchengine.model.FrontierUrl;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.FrontierRepository;
+import searchengine.repository.SiteRepository;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общая очередь обхода для нескольких экземпляров приложения с одной БД (crawler-settings.cluster).
+ * URL хранятся в таблице frontier; узел забирает их пачками под аренду, продлевает аренду,
+ * пока обрабатывает, и отмечает обработанные. Аренды узла, который остановился или упал,
+ * истекают через cluster-lease-seconds, и URL забирают другие узлы.
+ * Обход сайта завершается, когда в общей очереди не осталось ни свободных, ни арендованных URL.
+ */
+@Slf4j
+@Component
+public class ClusterFrontier {
+
+    private static final int PUBLISH_BATCH_SIZE = 500;
+
+    private final CrawlerSettings crawlerSettings;
+    private final FrontierRepository frontierRepository;
+    private final SiteRepository siteRepository;
+    private final String nodeId;
+    private final AtomicLong claims = new AtomicLong();
+
+    public ClusterFrontier(CrawlerSettings crawlerSettings,
+                           FrontierRepository frontierRepository,
+                           SiteRepository siteRepository) {
+        this.crawlerSettings = crawlerSettings;
+        this.frontierRepository = frontierRepository;
+        this.siteRepository = siteRepository;
+        String configured = crawlerSettings.getClusterNodeId();
+        this.nodeId = configured != null && !configured.isBlank() ? configured : defaultNodeId();
+    }
+
+    public boolean isEnabled() {
+        return crawlerSettings.isCluster();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Подключает обход сайта к общей очереди.
+     *
+     * @param reset очистить очередь сайта: новый обход, а не подключение к идущему
+     */
+    public void attach(SiteCrawl crawl, boolean reset) {
+        if (reset) {
+            frontierRepository.deleteBySite(crawl.getSite());
+        }
+        crawl.attachCluster(new LeasedFrontier(crawl.getSite()));
+        log.info("Узел {} обходит {} через общую очередь", nodeId, crawl.getRootUrl());
+    }
+
+    /**
+     * Переносит состояние обхода сайта между узлом и общей очередью: записывает найденные URL,
+     * закрывает аренды обработанных, забирает новую пачку, если очередь узла опустела наполовину.
+     *
+     * @return true, если обход сайта закончен во всём кластере (или остановлен на этом узле)
+     */
+    public boolean sync(SiteCrawl crawl) {
+        LeasedFrontier shared = crawl.getCluster();
+        if (shared == null) {
+            return false;
+        }
+        publish(shared);
+        List<Long> done = shared.drainDone();
+        if (!done.isEmpty()) {
+            frontierRepository.markDone(done);
+        }
+        if (crawl.getBudgetNote() != null) {
+            // Обход на узле остановлен: взятые, но не начатые URL возвращаются другим узлам
+            List<Long> idle = shared.takeIdle(crawl.getInFlight());
+            if (!idle.isEmpty()) {
+                frontierRepository.release(idle, ownerPrefix());
+            }
+            return true;
+        }
+        int batch = Math.max(1, crawlerSettings.getClusterClaimBatch());
+        if (crawl.getQueueSize() <= batch / 2) {
+            claim(crawl, shared, batch - crawl.getQueueSize());
+        }
+        if (!crawl.isSeeded() || shared.hasOutbound() || shared.leasedCount() > 0) {
+            return false;
+        }
+        return frontierRepository.countOpen(crawl.getSite()) == 0;
+    }
+
+    /**
+     * Продлевает аренды всех URL, которые держит этот узел.
+     */
+    public void renewLeases() {
+        frontierRepository.renew(ownerPrefix(),
+                LocalDateTime.now().plusSeconds(crawlerSettings.getClusterLeaseSeconds()));
+    }
+
+    /**
+     * Возвращает в общую очередь всё, что узел держит по обходу сайта (остановка индексации).
+     */
+    public void release(SiteCrawl crawl) {
+        LeasedFrontier shared = crawl.getCluster();
+        if (shared == null) {
+            return;
+        }
+        try {
+            publish(shared);
+            List<Long> done = shared.drainDone();
+            if (!done.isEmpty()) {
+                frontierRepository.markDone(done);
+            }
+            List<Long> held = shared.takeAll();
+            if (!held.isEmpty()) {
+                frontierRepository.release(held, ownerPrefix());
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось вернуть URL {} в общую очередь: {}", crawl.getRootUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return false, если сайт в БД уже не индексируется: его остановил или завершил другой узел
+     */
+    public boolean isSiteIndexing(Site site) {
+        return siteRepository.findById(site.getId())
+                .map(stored -> stored.getStatus() == Status.INDEXING)
+                .orElse(false);
+    }
+
+    /**
+     * @return true, если в общей очереди сайта есть URL, которые может забрать этот узел
+     */
+    public boolean hasClaimableWork(Site site) {
+        return !frontierRepository.findClaimable(site, LocalDateTime.now(), PageRequest.of(0, 1)).isEmpty();
+    }
+
+    /**
+     * Ход обхода сайта во всём кластере.
+     */
+    public ClusterProgress progress(Site site) {
+        long queued = 0;
+        long leased = 0;
+        long done = 0;
+        for (Object[] row : frontierRepository.countByStatus(site)) {
+            long count = ((Number) row[1]).longValue();
+            FrontierStatus status = (FrontierStatus) row[0];
+            if (status == FrontierStatus.QUEUED) {
+                queued = count;
+            } else if (status == FrontierStatus.LEASED) {
+                leased = count;
+            } else {
+                done = count;
+            }
+        }
+        Set<String> nodes = new TreeSet<>();
+        for (String owner : frontierRepository.findLeaseOwners(site, LocalDateTime.now())) {
+            int slash = owner.lastIndexOf('/');
+            nodes.add(slash > 0 ? owner.substring(0, slash) : owner);
+        }
+        return new ClusterProgress(queued, leased, done, new ArrayList<>(nodes));
+    }
+
+    /**
+     * Очищает общую очередь всех сайтов (полная переиндексация).
+     */
+    public void clear() {
+        frontierRepository.deleteAllInBatch();
+    }
+
+    private void claim(SiteCrawl crawl, LeasedFrontier shared, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = frontierRepository.findClaimable(crawl.getSite(), now, PageRequest.of(0, count));
+        if (ids.isEmpty()) {
+            return;
+        }
+        // Своя метка у каждой пачки: по ней узел узнаёт строки, которые достались именно ему
+        String owner = nodeId + "/" + claims.incrementAndGet();
+        int claimed = frontierRepository.claim(ids, owner,
+                now.plusSeconds(crawlerSettings.getClusterLeaseSeconds()), now);
+        if (claimed == 0) {
+            return;
+        }
+        for (FrontierUrl row : frontierRepository.findByLeaseOwner(owner)) {
+            // Аренда учитывается до постановки в очередь: URL может быть обработан сразу
+            shared.leased(row.getUrl(), row.getId());
+            crawl.acceptLeased(new FrontierEntry(row.getUrl(), row.getDepth()));
+        }
+    }
+
+    private void publish(LeasedFrontier shared) {
+        List<FrontierEntry> batch;
+        while (!(batch = shared.drainOutbound(PUBLISH_BATCH_SIZE)).isEmpty()) {
+            Map<Long, FrontierEntry> byHash = new LinkedHashMap<>();
+            for (FrontierEntry entry : batch) {
+                byHash.putIfAbsent(UrlFingerprint.of(entry.getUrl()), entry);
+            }
+            Set<Long> existing = new HashSet<>(frontierRepository.findExistingHashes(shared.getSite(), byHash.keySet()));
+            List<FrontierUrl> rows = new ArrayList<>();
+            for (Map.Entry<Long, FrontierEntry> entry : byHash.entrySet()) {
+                if (!existing.contains(entry.getKey())) {
+                    rows.add(newRow(shared.getSite(), entry.getKey(), entry.getValue()));
+                }
+            }
+            try {
+                frontierRepository.saveAll(rows);
+            } catch (DataIntegrityViolationException e) {
+                // Часть URL одновременно добавил другой узел: записываем по одному
+                for (FrontierUrl row : rows) {
+                    try {
+                        frontierRepository.save(row);
+                    } catch (DataIntegrityViolationException ex) {
+                        // URL уже в общей очереди
+                    }
+                }
+            }
+        }
+    }
+
+    private static FrontierUrl newRow(Site site, long hash, FrontierEntry entry) {
+        FrontierUrl row = new FrontierUrl();
+        row.setSite(site);
+        row.setUrl(entry.getUrl());
+        row.setUrlHash(hash);
+        row.setDepth(entry.getDepth());
+        row.setStatus(FrontierStatus.QUEUED);
+        return row;
+    }
+
+    private String ownerPrefix() {
+        return nodeId + "/%";
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+}
@@ -0,0 +1,25 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Ход обхода сайта по общей очереди кластера.
+ */
+@Getter
+public class ClusterProgress {
+    private final long queued;
+    // Арендованы узлами: в очереди узла или в обработке
+    private final long leased;
+    private final long done;
+    // Узлы с действующими арендами
+    private final List<String> nodes;
+
+    public ClusterProgress(long queued, long leased, long done, List<String> nodes) {
+        this.queued = queued;
+        this.leased = leased;
+        this.done = done;
+        this.nodes = nodes;
+    }
+}
@@ -0,0 +1,31 @@
+package searchengine.services.indexing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Хэш текста страницы после очистки от разметки. Регистр и пробелы
+ * нормализуются, поэтому изменения только в вёрстке хэш не меняют.
+ */
+public final class ContentHash {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ContentHash() {
+    }
+
+    public static String of(String cleanText) {
+        String normalized = cleanText == null ? ""
+                : WHITESPACE.matcher(cleanText.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Контрольная точка обхода сайта: очередь URL (вместе с URL в обработке)
+ * и отпечатки посещённых URL на момент createdAt.
+ */
+@Getter
+public class CrawlCheckpoint {
+    private final LocalDateTime createdAt;
+    private final List<FrontierEntry> frontier;
+    private final long[] visited;
+
+    public CrawlCheckpoint(LocalDateTime createdAt, List<FrontierEntry> frontier, long[] visited) {
+        this.createdAt = createdAt;
+        this.frontier = frontier;
+        this.visited = visited;
+    }
+}
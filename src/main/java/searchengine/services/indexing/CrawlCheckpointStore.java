@@ -0,0 +1,134 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Хранит контрольные точки обхода в локальных файлах, по одному на сайт.
+ * Формат (gzip): заголовок, время точки, очередь URL с глубиной, затем 64-битные
+ * отпечатки посещённых URL до конца файла. Файл сначала пишется во временный
+ * и затем атомарно переименовывается, так что сбой во время записи
+ * не портит предыдущую точку.
+ */
+@Slf4j
+@Component
+public class CrawlCheckpointStore {
+
+    private static final int MAGIC = 0x43524B50;
+    private static final int VERSION = 2;
+
+    private final CrawlerSettings crawlerSettings;
+
+    public CrawlCheckpointStore(CrawlerSettings crawlerSettings) {
+        this.crawlerSettings = crawlerSettings;
+    }
+
+    public void save(SiteCrawl crawl) throws IOException {
+        Site site = crawl.getSite();
+        Path file = fileFor(site);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        // Время фиксируем до снимка: страницы, сохранённые позже, при продолжении разбираются заново
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<FrontierEntry> frontier = crawl.snapshotFrontier();
+        long[] written = new long[1];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(site.getId());
+            out.writeUTF(createdAt.toString());
+            out.writeInt(frontier.size());
+            for (FrontierEntry entry : frontier) {
+                out.writeUTF(entry.getUrl());
+                out.writeInt(entry.getDepth());
+            }
+            crawl.getVisited().forEachFingerprint(fingerprint -> {
+                try {
+                    out.writeLong(fingerprint);
+                    written[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Контрольная точка {}: очередь {}, посещено {}", site.getUrl(), frontier.size(), written[0]);
+    }
+
+    /**
+     * @return контрольная точка или null, если её нет или файл повреждён
+     */
+    public CrawlCheckpoint load(Site site) {
+        Path file = fileFor(site);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file)), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != site.getId()) {
+                log.warn("Контрольная точка {} не подходит для сайта {}", file, site.getUrl());
+                return null;
+            }
+            LocalDateTime createdAt = LocalDateTime.parse(in.readUTF());
+            int frontierSize = in.readInt();
+            List<FrontierEntry> frontier = new ArrayList<>(frontierSize);
+            for (int i = 0; i < frontierSize; i++) {
+                frontier.add(new FrontierEntry(in.readUTF(), in.readInt()));
+            }
+            long[] visited = new long[1024];
+            int count = 0;
+            while (true) {
+                long fingerprint;
+                try {
+                    fingerprint = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (count == visited.length) {
+                    visited = Arrays.copyOf(visited, count * 2);
+                }
+                visited[count++] = fingerprint;
+            }
+            return new CrawlCheckpoint(createdAt, frontier, Arrays.copyOf(visited, count));
+        } catch (Exception e) {
+            log.warn("Не удалось прочитать контрольную точку {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    public void delete(Site site) {
+        try {
+            Files.deleteIfExists(fileFor(site));
+        } catch (IOException e) {
+            log.warn("Не удалось удалить контрольную точку сайта {}: {}", site.getUrl(), e.getMessage());
+        }
+    }
+
+    private Path fileFor(Site site) {
+        return Paths.get(crawlerSettings.getCheckpointDir(), "site-" + site.getId() + ".ckpt");
+    }
+}
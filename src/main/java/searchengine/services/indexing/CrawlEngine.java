@@ -0,0 +1,564 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Движок обхода сайтов: пул потоков-загрузчиков, которые забирают URL из очередей (frontier)
+ * активных сайтов. Потоки делятся между сайтами по весам (weight) с учётом квот (max-workers)
+ * из indexing-settings.sites, так что крупный сайт не задерживает обход небольших. Загруженные страницы
+ * передаются в {@link CrawlPipeline} на разбор, лемматизацию и запись.
+ * Размер пула задаётся в crawler-settings.fetch-threads и не зависит от числа ядер.
+ * Частоту запросов к каждому хосту ограничивает {@link HostPolitenessScheduler},
+ * число одновременно обрабатываемых страниц хоста — {@link AdaptiveHostLimiter}:
+ * если хост ещё не готов, поток берёт URL другого сайта, а не ждёт.
+ * Первым делом для каждого сайта один из потоков загружает robots.txt
+ * и заполняет очередь из карт сайта, остальные тем временем обходят другие сайты.
+ * Состояние обхода периодически сохраняется в {@link CrawlCheckpointStore}.
+ * В кластере (crawler-settings.cluster) очереди сайтов живут в {@link ClusterFrontier}:
+ * отдельный поток раз в cluster-sync-interval-ms переносит найденные URL в общую очередь,
+ * забирает оттуда новые и завершает обход сайта, когда URL не осталось ни на одном узле.
+ * Загруженные страницы можно сохранять в {@link WarcArchive}, а в режиме {@link CrawlMode#REPLAY}
+ * поток заполнения очереди вместо сети читает архив сайта и передаёт страницы прямо в конвейер.
+ * Законченный обход передаётся в {@link IndexGenerations}, который переключает поиск на новый индекс.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlEngine {
+
+    private static final long IDLE_WAIT_MS = 50;
+
+    private final CrawlerSettings crawlerSettings;
+    private final HostPolitenessScheduler politenessScheduler;
+    private final AdaptiveHostLimiter hostLimiter;
+    private final RobotsTxtLoader robotsTxtLoader;
+    private final CrawlCheckpointStore checkpointStore;
+    private final SiteStatusTracker statusTracker;
+    private final CrawlPipeline pipeline;
+    private final MemoryPressureMonitor memoryMonitor;
+    private final ClusterFrontier clusterFrontier;
+    private final WarcArchive warcArchive;
+    private final IndexGenerations indexGenerations;
+    private final List<SiteMapBuilder> activeCrawls = new CopyOnWriteArrayList<>();
+    private volatile ExecutorService workers;
+    private volatile ScheduledExecutorService checkpointer;
+    private volatile ScheduledExecutorService clusterSync;
+    private volatile boolean stopped;
+
+    public synchronized void start(List<SiteMapBuilder> crawls) {
+        stopped = false;
+        if (workers == null || workers.isShutdown()) {
+            // Новый запуск: robots.txt перечитываем, лимиты хостов считаем заново
+            robotsTxtLoader.clear();
+            hostLimiter.clear();
+        }
+        for (SiteMapBuilder builder : crawls) {
+            SiteCrawl crawl = builder.getCrawl();
+            Double rate = crawl.getSettings().getRequestsPerSecond();
+            politenessScheduler.register(crawl.getHost(),
+                    rate != null ? rate : crawlerSettings.getRequestsPerSecond(),
+                    crawlerSettings.getRequestBurst());
+            crawl.setVisited(createVisitedSet());
+            if (crawlerSettings.isNearDuplicateDetection()) {
+                crawl.setNearDuplicateIndex(SimHashIndex.forSimilarity(crawlerSettings.getNearDuplicateSimilarity()));
+            }
+            if (!crawl.isResumed()) {
+                // Старая точка относится к прежнему обходу
+                checkpointStore.delete(crawl.getSite());
+            }
+            if (clusterFrontier.isEnabled()) {
+                // Новый обход начинает общую очередь сайта заново, подключение и продолжение — нет
+                boolean reset = crawl.getMode() != CrawlMode.RESUME && crawl.getMode() != CrawlMode.JOIN;
+                clusterFrontier.attach(crawl, reset);
+            }
+            statusTracker.track(crawl);
+            crawl.startPassAt(minPass());
+            activeCrawls.add(builder);
+        }
+
+        if (workers == null || workers.isShutdown()) {
+            pipeline.start();
+            int threads = Math.max(1, crawlerSettings.getFetchThreads());
+            ExecutorService pool = Executors.newFixedThreadPool(threads, workerThreadFactory());
+            for (int i = 0; i < threads; i++) {
+                pool.execute(() -> runWorker(pool));
+            }
+            workers = pool;
+            log.info("Запущено {} потоков загрузки", threads);
+        }
+        if (crawlerSettings.isCheckpoints() && checkpointer == null) {
+            int interval = Math.max(1, crawlerSettings.getCheckpointIntervalSeconds());
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "crawl-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(this::saveCheckpoints, interval, interval, TimeUnit.SECONDS);
+        }
+        if (clusterFrontier.isEnabled() && clusterSync == null) {
+            long interval = Math.max(100, crawlerSettings.getClusterSyncIntervalMs());
+            clusterSync = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "crawl-cluster-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            clusterSync.scheduleWithFixedDelay(this::syncCluster, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        stopClusterSync();
+        for (SiteMapBuilder builder : activeCrawls) {
+            // Страницы, которые ещё в конвейере, не записываются
+            builder.getCrawl().cancel("индексация остановлена");
+            // Другие узлы смогут забрать URL, не дожидаясь истечения аренды
+            clusterFrontier.release(builder.getCrawl());
+        }
+        activeCrawls.clear();
+        politenessScheduler.clear();
+        robotsTxtLoader.clear();
+        warcArchive.closeAll();
+        statusTracker.clear();
+        pipeline.stop();
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        stopCheckpointer();
+    }
+
+    /**
+     * Останавливает обход одного сайта, остальные продолжаются. Очередь сайта очищается,
+     * загруженные страницы не записываются; обход завершается, когда потоки отпустят
+     * его последние страницы. Статус сайта записывает вызывающий.
+     *
+     * @return false, если сайт на этом узле не обходится
+     */
+    public boolean stop(Site site) {
+        for (SiteMapBuilder builder : activeCrawls) {
+            SiteCrawl crawl = builder.getCrawl();
+            if (crawl.getSite().getId() != site.getId()) {
+                continue;
+            }
+            log.info("Обход сайта {} остановлен", site.getUrl());
+            // Статус пишет вызывающий: запись времени активности его не должна перетереть
+            statusTracker.forget(crawl.getSite());
+            if (crawl.cancel("обход остановлен пользователем")) {
+                finishCrawl(builder);
+            } else {
+                clusterFrontier.release(crawl);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private double minPass() {
+        double min = Double.MAX_VALUE;
+        for (SiteMapBuilder builder : activeCrawls) {
+            min = Math.min(min, builder.getCrawl().getPass());
+        }
+        return min == Double.MAX_VALUE ? 0 : min;
+    }
+
+    public boolean isRunning() {
+        return !activeCrawls.isEmpty();
+    }
+
+    /**
+     * @return true, если сайт обходится на этом узле
+     */
+    public boolean isCrawling(Site site) {
+        for (SiteMapBuilder builder : activeCrawls) {
+            if (builder.getCrawl().getSite().getId() == site.getId()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWorker(ExecutorService pool) {
+        // Поток работает, пока его пул не остановлен: stop() или завершение всех сайтов
+        while (!pool.isShutdown() && !Thread.currentThread().isInterrupted()) {
+            SiteMapBuilder builder = null;
+            FrontierEntry entry = null;
+            boolean seeding = false;
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_WAIT_MS);
+
+            // Первым обслуживается сайт с наименьшим виртуальным временем, то есть получивший
+            // меньше всего страниц с учётом веса; если он не готов, берётся следующий.
+            // При нехватке памяти новые страницы не берутся, пока конвейер не разгрузится
+            SiteMapBuilder[] candidates = memoryMonitor.isUnderPressure()
+                    ? new SiteMapBuilder[0] : byPass(activeCrawls);
+            for (int i = 0; i < candidates.length && entry == null && !seeding; i++) {
+                builder = candidates[i];
+                SiteCrawl crawl = builder.getCrawl();
+                if (!crawl.isSeedingClaimed() && crawl.claimSeeding()) {
+                    seeding = true;
+                    continue;
+                }
+                if (crawl.isQueueEmpty()) {
+                    continue;
+                }
+                String budget = crawl.checkBudget();
+                if (budget != null) {
+                    if (crawl.stopForBudget(budget)) {
+                        finishCrawl(builder);
+                    }
+                    continue;
+                }
+                if (!crawl.tryReserveWorker()) {
+                    continue;
+                }
+                long wait = hostLimiter.tryAcquire(crawl.getHost());
+                if (wait > 0) {
+                    crawl.releaseWorker();
+                    idleNanos = Math.min(idleNanos, wait);
+                    continue;
+                }
+                wait = politenessScheduler.tryAcquire(crawl.getHost());
+                if (wait > 0) {
+                    hostLimiter.release(crawl.getHost());
+                    crawl.releaseWorker();
+                    idleNanos = Math.min(idleNanos, wait);
+                    continue;
+                }
+                entry = crawl.poll();
+                if (entry == null) {
+                    hostLimiter.release(crawl.getHost());
+                    crawl.releaseWorker();
+                } else {
+                    crawl.charge();
+                }
+            }
+
+            if (seeding) {
+                try {
+                    seedCrawl(builder);
+                } catch (Exception e) {
+                    log.error("Ошибка при заполнении очереди сайта: " + builder.getCrawl().getRootUrl(), e);
+                } finally {
+                    if (builder.getCrawl().complete()) {
+                        finishCrawl(builder);
+                    }
+                }
+                continue;
+            }
+
+            if (entry == null) {
+                // Ни один хост сейчас не готов: ждём ближайшего разрешения, но не дольше IDLE_WAIT_MS
+                try {
+                    TimeUnit.NANOSECONDS.sleep(Math.max(idleNanos, 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                continue;
+            }
+
+            SiteMapBuilder current = builder;
+            String url = entry.getUrl();
+            PageTask task = null;
+            long started = pipeline.beginFetch();
+            try {
+                task = builder.fetchPage(entry);
+            } catch (Exception e) {
+                log.error("Ошибка при загрузке страницы: " + url, e);
+            } finally {
+                pipeline.endFetch(started);
+                // Хост и квота сайта освобождаются сразу после загрузки, разбор и запись их не занимают
+                hostLimiter.release(builder.getCrawl().getHost());
+                builder.getCrawl().releaseWorker();
+            }
+            if (task == null) {
+                completePage(current, url);
+                continue;
+            }
+            if (warcArchive.isCaptureEnabled()) {
+                warcArchive.record(builder.getCrawl(), task);
+            }
+            try {
+                // Ждёт, если стадия разбора не успевает: так конвейер сдерживает загрузку
+                pipeline.submit(builder, task, () -> completePage(current, url));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Сайты по возрастанию виртуального времени. Время читается один раз до сортировки:
+     * другие потоки меняют его во время выбора. Сайтов немного, поэтому сортировка вставками.
+     */
+    static SiteMapBuilder[] byPass(List<SiteMapBuilder> crawls) {
+        SiteMapBuilder[] order = crawls.toArray(new SiteMapBuilder[0]);
+        double[] passes = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            passes[i] = order[i].getCrawl().getPass();
+        }
+        for (int i = 1; i < order.length; i++) {
+            SiteMapBuilder builder = order[i];
+            double pass = passes[i];
+            int j = i - 1;
+            while (j >= 0 && passes[j] > pass) {
+                order[j + 1] = order[j];
+                passes[j + 1] = passes[j];
+                j--;
+            }
+            order[j + 1] = builder;
+            passes[j + 1] = pass;
+        }
+        return order;
+    }
+
+    /**
+     * Страница прошла все стадии; URL, найденные на ней, к этому моменту уже в очереди.
+     */
+    private void completePage(SiteMapBuilder builder, String url) {
+        if (builder.getCrawl().complete(url)) {
+            finishCrawl(builder);
+        }
+    }
+
+    /**
+     * Загружает robots.txt хоста (Crawl-delay снижает частоту запросов к хосту)
+     * и передаёт сайту список карт: из robots.txt, а если их там нет — /sitemap.xml.
+     */
+    private void seedCrawl(SiteMapBuilder builder) {
+        SiteCrawl crawl = builder.getCrawl();
+        if (crawl.getMode() == CrawlMode.REPLAY) {
+            replayArchive(builder);
+            crawl.setSeeded(true);
+            return;
+        }
+        RobotsRules robots = robotsTxtLoader.rulesFor(crawl.getRootUrl());
+        crawl.setRobots(robots);
+        Double crawlDelay = robots.getCrawlDelay();
+        if (crawlDelay != null && crawlDelay > 0) {
+            politenessScheduler.register(crawl.getHost(), 1.0 / crawlDelay, 1);
+        }
+
+        List<String> sitemaps = new ArrayList<>();
+        if (crawlerSettings.isSitemaps()) {
+            sitemaps.addAll(robots.getSitemaps());
+            if (sitemaps.isEmpty()) {
+                String root = crawl.getRootUrl();
+                sitemaps.add((root.endsWith("/") ? root.substring(0, root.length() - 1) : root) + "/sitemap.xml");
+            }
+        }
+        if (crawl.getMode() != CrawlMode.JOIN) {
+            // При подключении к чужому обходу очередь уже заполнена узлом, который его начал
+            CrawlCheckpoint checkpoint = crawl.isResumed() ? checkpointStore.load(crawl.getSite()) : null;
+            SitemapLimits limits = new SitemapLimits(crawlerSettings.getSitemapMaxFiles(),
+                    crawlerSettings.getSitemapMaxBytes(), crawlerSettings.getSitemapMaxUrls());
+            builder.seed(sitemaps, limits, checkpoint, this::awaitTurn);
+        }
+        crawl.setSeeded(true);
+    }
+
+    /**
+     * Ждёт разрешения на запрос к хосту: карты сайта загружает поток заполнения очереди,
+     * минуя выбор страниц в runWorker, но частота запросов к хосту для них та же.
+     */
+    private void awaitTurn(String host) {
+        long wait;
+        while ((wait = politenessScheduler.tryAcquire(host)) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Читает архив WARC сайта и передаёт страницы в конвейер. Чтение идёт последовательно
+     * с диска, разбор, лемматизация и запись — потоками конвейера; полная очередь стадии
+     * сдерживает чтение так же, как загрузку.
+     */
+    private void replayArchive(SiteMapBuilder builder) {
+        SiteCrawl crawl = builder.getCrawl();
+        List<Path> files = warcArchive.files(crawl.getHost());
+        if (files.isEmpty()) {
+            log.warn("Нет архива WARC для {}: сайт воспроизводить не из чего", crawl.getRootUrl());
+            return;
+        }
+        long started = System.nanoTime();
+        long records = 0;
+        for (Path file : files) {
+            try (WarcReader reader = WarcReader.open(file)) {
+                WarcRecord record;
+                while ((record = reader.next()) != null && !stopped && !crawl.isCancelled()) {
+                    if (!record.isResponse()) {
+                        continue;
+                    }
+                    records++;
+                    PageTask task = builder.replayPage(record);
+                    if (task == null) {
+                        continue;
+                    }
+                    String url = task.url;
+                    crawl.beginReplayed();
+                    pipeline.submit(builder, task, () -> completePage(builder, url));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.warn("Ошибка чтения архива {}: {}", file, e.getMessage());
+            }
+        }
+        log.info("Архив {}: файлов {}, записей {}, передано страниц {} за {} с",
+                crawl.getRootUrl(), files.size(), records, crawl.getPagesTaken(),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    }
+
+    private void saveCheckpoints() {
+        for (SiteMapBuilder builder : activeCrawls) {
+            SiteCrawl crawl = builder.getCrawl();
+            // Очередь сайта в кластере хранится в БД, воспроизведение архива не продолжается
+            if (!crawl.isSeeded() || crawl.isClustered() || crawl.getMode() == CrawlMode.REPLAY) {
+                continue;
+            }
+            try {
+                checkpointStore.save(crawl);
+            } catch (Exception e) {
+                log.warn("Не удалось сохранить контрольную точку сайта {}: {}", crawl.getRootUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private void syncCluster() {
+        try {
+            clusterFrontier.renewLeases();
+        } catch (Exception e) {
+            log.warn("Не удалось продлить аренду URL узла {}: {}", clusterFrontier.getNodeId(), e.getMessage());
+        }
+        for (SiteMapBuilder builder : activeCrawls) {
+            SiteCrawl crawl = builder.getCrawl();
+            try {
+                if (!crawl.isCancelled() && !clusterFrontier.isSiteIndexing(crawl.getSite())) {
+                    // Сайт остановлен, завершён или признан неудачным на другом узле
+                    log.info("Обход {} прекращён на узле {}: сайт уже не индексируется",
+                            crawl.getRootUrl(), clusterFrontier.getNodeId());
+                    if (crawl.cancel("обход прекращён другим узлом")) {
+                        finishCrawl(builder);
+                        continue;
+                    }
+                }
+                if (clusterFrontier.sync(crawl) && crawl.releaseClusterHold()) {
+                    finishCrawl(builder);
+                }
+            } catch (Exception e) {
+                log.warn("Не удалось синхронизировать общую очередь сайта {}: {}", crawl.getRootUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void stopClusterSync() {
+        if (clusterSync != null) {
+            clusterSync.shutdown();
+            clusterSync = null;
+        }
+    }
+
+    private synchronized void stopCheckpointer() {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+            checkpointer = null;
+        }
+    }
+
+    private void finishCrawl(SiteMapBuilder builder) {
+        activeCrawls.remove(builder);
+        if (stopped) {
+            return;
+        }
+        synchronized (this) {
+            if (activeCrawls.isEmpty() && workers != null) {
+                workers.shutdown();
+                workers = null;
+                pipeline.shutdown();
+                stopCheckpointer();
+                stopClusterSync();
+            }
+        }
+        SiteCrawl crawl = builder.getCrawl();
+        Site site = crawl.getSite();
+        clusterFrontier.release(crawl);
+        warcArchive.close(crawl.getHost());
+        if (crawl.isCancelled()) {
+            // Статус сайта уже записан узлом, который остановил обход
+            statusTracker.forget(site);
+            log.info("Обход сайта {} на этом узле прекращён, взято страниц: {}", site.getUrl(), crawl.getPagesTaken());
+            return;
+        }
+        checkpointStore.delete(site);
+        try {
+            builder.finish();
+        } catch (Exception e) {
+            log.error("Ошибка при завершении обхода сайта: " + site.getUrl(), e);
+        }
+        // Лимит обхода — штатное завершение, а не ошибка
+        statusTracker.complete(site,
+                crawl.getBudgetNote() != null ? "Обход остановлен по лимиту: " + crawl.getBudgetNote() : null);
+        try {
+            // Теневой индекс становится текущим, если сайт проиндексирован
+            indexGenerations.finish(site);
+        } catch (Exception e) {
+            log.error("Ошибка при переключении индекса сайта: " + site.getUrl(), e);
+        }
+        VisitedUrlSet visited = crawl.getVisited();
+        log.info("Обход сайта завершён: {}, посещено URL: {}, память множества посещённых: {} КБ",
+                site.getUrl(), visited.size(), visited.memoryBytes() / 1024);
+        log.info("Ссылки {}: найдено {}, отфильтровано {}, поставлено в очередь {}",
+                site.getUrl(), crawl.getLinksExtracted(), crawl.getLinksFiltered(), crawl.getLinksEnqueued());
+        if (crawl.isIncremental()) {
+            log.info("Повторный обход {}: ответов 304: {}, с тем же текстом: {}",
+                    site.getUrl(), crawl.getNotModified(), crawl.getUnchanged());
+        }
+        log.info("Отклонено без загрузки тела на {}: не HTML {}, слишком большие {}",
+                site.getUrl(), crawl.getRejectedContentType(), crawl.getRejectedTooLarge());
+        log.info("Лимиты {}: взято страниц {}, отброшено ссылок глубже max-depth {}{}",
+                site.getUrl(), crawl.getPagesTaken(), crawl.getDepthLimited(),
+                crawl.getBudgetNote() != null ? ", остановлен: " + crawl.getBudgetNote() : "");
+        log.info("Карты сайта {}: поставлено в очередь {}, не изменилось по lastmod {}; запрещено robots.txt: {}",
+                site.getUrl(), crawl.getSitemapUrls(), crawl.getSitemapUnchanged(), crawl.getRobotsBlocked());
+        log.info("Пропущено копий на {}: точных {}, почти одинаковых {}, с другим rel=canonical {}",
+                site.getUrl(), crawl.getDuplicates(), crawl.getNearDuplicates(), crawl.getCanonicalSkipped());
+    }
+
+    private VisitedUrlSet createVisitedSet() {
+        BloomFilter bloomFilter = crawlerSettings.isVisitedBloomFilter()
+                ? new BloomFilter(crawlerSettings.getVisitedBloomExpectedUrls(),
+                        crawlerSettings.getVisitedBloomFalsePositiveRate())
+                : null;
+        return new VisitedUrlSet(crawlerSettings.getVisitedMaxUrls(), bloomFilter);
+    }
+
+    private ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "crawl-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.services.indexing;
+
+/**
+ * Режим обхода сайта.
+ */
+public enum CrawlMode {
+    /**
+     * Обход с нуля в новую строку сайта (SHADOW, {@link IndexGenerations}); поиск тем временем
+     * читает прежний индекс, который выводится из поиска после завершения обхода.
+     */
+    FULL,
+    /** Повторный обход текущего индекса на месте с условными запросами. */
+    INCREMENTAL,
+    /** Продолжение прерванного обхода: сохранённые страницы повторно не загружаются. */
+    RESUME,
+    /**
+     * Подключение к обходу, который запущен другим узлом кластера: очередь заполнена им,
+     * этот узел только забирает URL из общей очереди.
+     */
+    JOIN,
+    /**
+     * Обход по архиву WARC вместо сети: сохранённые ответы проходят те же стадии
+     * разбора, лемматизации и записи, ссылки в очередь не ставятся.
+     */
+    REPLAY
+}
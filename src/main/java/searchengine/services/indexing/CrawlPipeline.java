@@ -0,0 +1,164 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Конвейер обработки загруженных страниц: разбор → лемматизация → запись в БД.
+ * Загрузку выполняют потоки {@link CrawlEngine}; у каждой следующей стадии свой пул потоков
+ * (crawler-settings.parse-threads, lemmatize-threads, persist-threads) и ограниченная очередь
+ * (pipeline-queue-capacity). Сеть, процессор и БД заняты одновременно, а переполненная
+ * очередь медленной стадии притормаживает загрузку.
+ */
+@Slf4j
+@Component
+public class CrawlPipeline {
+
+    private final CrawlerSettings crawlerSettings;
+    private volatile StageMetrics fetchMetrics = new StageMetrics();
+    private volatile Stages stages;
+
+    public CrawlPipeline(CrawlerSettings crawlerSettings) {
+        this.crawlerSettings = crawlerSettings;
+    }
+
+    public synchronized void start() {
+        if (stages != null) {
+            return;
+        }
+        int capacity = crawlerSettings.getPipelineQueueCapacity();
+        int lemmatizeThreads = crawlerSettings.getLemmatizeThreads() > 0
+                ? crawlerSettings.getLemmatizeThreads()
+                : Runtime.getRuntime().availableProcessors();
+        fetchMetrics = new StageMetrics();
+        stages = new Stages(
+                new PipelineStage("parse", crawlerSettings.getParseThreads(), capacity),
+                new PipelineStage("lemmatize", lemmatizeThreads, capacity),
+                new PipelineStage("persist", crawlerSettings.getPersistThreads(), capacity));
+        log.info("Конвейер обхода: разбор {} потоков, лемматизация {}, запись {}, очередь стадии {}",
+                crawlerSettings.getParseThreads(), lemmatizeThreads, crawlerSettings.getPersistThreads(), capacity);
+    }
+
+    /**
+     * Все сайты обойдены: потоки стадий завершатся после уже поставленных задач.
+     */
+    public synchronized void shutdown() {
+        if (stages != null) {
+            stages.forEach(PipelineStage::shutdown);
+            stages = null;
+        }
+    }
+
+    /**
+     * Остановка индексации: очереди стадий очищаются.
+     */
+    public synchronized void stop() {
+        if (stages != null) {
+            stages.forEach(PipelineStage::stop);
+            stages = null;
+        }
+    }
+
+    long beginFetch() {
+        return fetchMetrics.begin();
+    }
+
+    void endFetch(long started) {
+        fetchMetrics.end(started);
+    }
+
+    /**
+     * Передаёт загруженную страницу на разбор; ждёт, если очередь разбора заполнена.
+     *
+     * @param onDone вызывается один раз, когда страница прошла последнюю нужную ей стадию
+     */
+    public void submit(SiteMapBuilder builder, PageTask task, Runnable onDone) throws InterruptedException {
+        Stages current = stages;
+        if (current == null) {
+            onDone.run();
+            return;
+        }
+        current.parse.submit(() -> parse(current, builder, task, onDone));
+    }
+
+    /**
+     * Загрузка и стадии конвейера; пусто, если обход не идёт.
+     */
+    public List<PipelineStageSnapshot> snapshot() {
+        Stages current = stages;
+        List<PipelineStageSnapshot> result = new ArrayList<>();
+        if (current == null) {
+            return result;
+        }
+        // Очередь загрузки — очереди сайтов (frontier), у неё нет общего лимита
+        result.add(fetchMetrics.snapshot("fetch", crawlerSettings.getFetchThreads(), 0, 0));
+        current.forEach(stage -> result.add(stage.snapshot()));
+        return result;
+    }
+
+    private void parse(Stages current, SiteMapBuilder builder, PageTask task, Runnable onDone) {
+        boolean handedOver = false;
+        try {
+            if (builder.parsePage(task)) {
+                if (task.needsLemmas()) {
+                    current.lemmatize.submit(() -> lemmatize(current, builder, task, onDone));
+                } else {
+                    current.persist.submit(() -> persist(builder, task, onDone));
+                }
+                handedOver = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!handedOver) {
+                onDone.run();
+            }
+        }
+    }
+
+    private void lemmatize(Stages current, SiteMapBuilder builder, PageTask task, Runnable onDone) {
+        boolean handedOver = false;
+        try {
+            builder.lemmatizePage(task);
+            current.persist.submit(() -> persist(builder, task, onDone));
+            handedOver = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!handedOver) {
+                onDone.run();
+            }
+        }
+    }
+
+    private void persist(SiteMapBuilder builder, PageTask task, Runnable onDone) {
+        try {
+            builder.persistPage(task);
+        } finally {
+            onDone.run();
+        }
+    }
+
+    private static final class Stages {
+        private final PipelineStage parse;
+        private final PipelineStage lemmatize;
+        private final PipelineStage persist;
+
+        private Stages(PipelineStage parse, PipelineStage lemmatize, PipelineStage persist) {
+            this.parse = parse;
+            this.lemmatize = lemmatize;
+            this.persist = persist;
+        }
+
+        private void forEach(Consumer<PipelineStage> action) {
+            action.accept(parse);
+            action.accept(lemmatize);
+            action.accept(persist);
+        }
+    }
+}
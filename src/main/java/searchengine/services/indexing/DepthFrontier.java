@@ -0,0 +1,127 @@
+package searchengine.services.indexing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Очередь URL сайта в порядке обхода в ширину: сначала меньшая глубина,
+ * а на одной глубине — URL, на которые найдено больше ссылок. Если обход
+ * прервётся по лимиту, проиндексированными окажутся самые «верхние» страницы.
+ * <p>
+ * Число ссылок на URL растёт, пока он ждёт в очереди, поэтому при каждом увеличении
+ * в кучу добавляется новый узел, а устаревшие узлы пропускаются при извлечении.
+ */
+public class DepthFrontier {
+
+    private final Map<String, Queued> queued = new HashMap<>();
+    private final TreeMap<Integer, PriorityQueue<Node>> levels = new TreeMap<>();
+    private long sequence;
+    private volatile int size;
+
+    /**
+     * @return false, если URL уже в очереди
+     */
+    public synchronized boolean add(FrontierEntry entry) {
+        if (queued.containsKey(entry.getUrl())) {
+            return false;
+        }
+        Queued item = new Queued(entry);
+        queued.put(entry.getUrl(), item);
+        push(item);
+        size = queued.size();
+        return true;
+    }
+
+    /**
+     * Учитывает ещё одну найденную ссылку на URL, если он ещё в очереди.
+     */
+    public synchronized void addInlink(String url) {
+        Queued item = queued.get(url);
+        if (item != null) {
+            item.inlinks++;
+            push(item);
+        }
+    }
+
+    public synchronized FrontierEntry poll() {
+        while (!levels.isEmpty()) {
+            Map.Entry<Integer, PriorityQueue<Node>> level = levels.firstEntry();
+            Node node = level.getValue().poll();
+            if (level.getValue().isEmpty()) {
+                levels.remove(level.getKey());
+            }
+            if (node == null || node.inlinks != node.item.inlinks || queued.get(node.item.entry.getUrl()) != node.item) {
+                continue;
+            }
+            queued.remove(node.item.entry.getUrl());
+            size = queued.size();
+            return node.item.entry;
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Очищает очередь.
+     *
+     * @return сколько URL было удалено
+     */
+    public synchronized int clear() {
+        int removed = queued.size();
+        queued.clear();
+        levels.clear();
+        size = 0;
+        return removed;
+    }
+
+    public synchronized List<FrontierEntry> snapshot() {
+        List<FrontierEntry> snapshot = new ArrayList<>(queued.size());
+        for (Queued item : queued.values()) {
+            snapshot.add(item.entry);
+        }
+        return snapshot;
+    }
+
+    private void push(Queued item) {
+        levels.computeIfAbsent(item.entry.getDepth(), d -> new PriorityQueue<>())
+                .add(new Node(item, item.inlinks, sequence++));
+    }
+
+    private static final class Queued {
+        private final FrontierEntry entry;
+        private int inlinks = 1;
+
+        private Queued(FrontierEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private static final class Node implements Comparable<Node> {
+        private final Queued item;
+        private final int inlinks;
+        private final long order;
+
+        private Node(Queued item, int inlinks, long order) {
+            this.item = item;
+            this.inlinks = inlinks;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            int byInlinks = Integer.compare(other.inlinks, inlinks);
+            return byInlinks != 0 ? byInlinks : Long.compare(order, other.order);
+        }
+    }
+}
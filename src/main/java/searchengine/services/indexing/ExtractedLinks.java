@@ -0,0 +1,24 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Результат извлечения ссылок со страницы.
+ */
+@Getter
+public class ExtractedLinks {
+    // сколько всего a[href] на странице
+    private final int extracted;
+    // сколько отброшено фильтром (чужой хост, бинарные файлы, некорректный URL)
+    private final int filtered;
+    // нормализованные URL без повторов внутри страницы
+    private final List<String> urls;
+
+    public ExtractedLinks(int extracted, int filtered, List<String> urls) {
+        this.extracted = extracted;
+        this.filtered = filtered;
+        this.urls = urls;
+    }
+}
@@ -0,0 +1,11 @@
+package searchengine.services.indexing;
+
+/**
+ * Причина, по которой {@link PageFetcher} не стал читать тело ответа.
+ */
+public enum FetchRejection {
+    /** Content-Type не HTML. */
+    CONTENT_TYPE,
+    /** Content-Length или фактический размер тела больше crawler-settings.max-page-bytes. */
+    TOO_LARGE
+}
@@ -0,0 +1,104 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Ответ сервера, полученный {@link PageFetcher}: код, тип содержимого и распакованное тело.
+ * Если ответ отклонён по заголовкам или размеру, тело пустое, а причина — в rejection.
+ */
+@Getter
+public class FetchResult {
+    private final String url;
+    private final int statusCode;
+    private final String contentType;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final FetchRejection rejection;
+
+    public FetchResult(String url, int statusCode, String contentType, byte[] body,
+                       String etag, String lastModified) {
+        this(url, statusCode, contentType, body, etag, lastModified, null);
+    }
+
+    private FetchResult(String url, int statusCode, String contentType, byte[] body,
+                        String etag, String lastModified, FetchRejection rejection) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.rejection = rejection;
+    }
+
+    public static FetchResult rejected(String url, int statusCode, String contentType, FetchRejection rejection) {
+        return new FetchResult(url, statusCode, contentType, new byte[0], null, null, rejection);
+    }
+
+    public boolean isRejected() {
+        return rejection != null;
+    }
+
+    /**
+     * Ответ 304 на условный запрос: страница не изменилась, тела нет.
+     */
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public boolean isHtml() {
+        return isHtmlType(contentType);
+    }
+
+    /**
+     * HTML или XHTML; ответ без Content-Type тоже считается HTML.
+     */
+    public static boolean isHtmlType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/html") || type.startsWith("application/xhtml+xml");
+    }
+
+    /**
+     * Любой текст (robots.txt приходит как text/plain) или XML; ответ без Content-Type тоже подходит.
+     */
+    public static boolean isTextType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        String mediaType = (parameters >= 0 ? type.substring(0, parameters) : type).trim();
+        return mediaType.startsWith("text/") || mediaType.equals("application/xml")
+                || mediaType.endsWith("+xml");
+    }
+
+    /**
+     * Кодировка из Content-Type; null — Jsoup определит её по meta-тегам.
+     */
+    public String getCharset() {
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            String param = part.trim();
+            if (param.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                return param.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+        return null;
+    }
+
+    public Document parse() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), getCharset(), url);
+    }
+}
@@ -0,0 +1,24 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * URL в очереди обхода вместе с глубиной (число переходов от корня сайта)
+ * и номером повторной попытки загрузки (0 — первая загрузка).
+ */
+@Getter
+public class FrontierEntry {
+    private final String url;
+    private final int depth;
+    private final int attempt;
+
+    public FrontierEntry(String url, int depth) {
+        this(url, depth, 0);
+    }
+
+    public FrontierEntry(String url, int depth, int attempt) {
+        this.url = url;
+        this.depth = depth;
+        this.attempt = attempt;
+    }
+}
@@ -0,0 +1,23 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Текущее состояние ограничителя одного хоста для статистики.
+ */
+@Getter
+public class HostLimitSnapshot {
+    private final int concurrencyLimit;
+    private final int inFlight;
+    private final long latencyMs;
+    private final String circuit;
+    private final long retryAfterMs;
+
+    public HostLimitSnapshot(int concurrencyLimit, int inFlight, long latencyMs, String circuit, long retryAfterMs) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.inFlight = inFlight;
+        this.latencyMs = latencyMs;
+        this.circuit = circuit;
+        this.retryAfterMs = retryAfterMs;
+    }
+}
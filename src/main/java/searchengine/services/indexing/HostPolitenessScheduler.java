@@ -0,0 +1,84 @@
+package searchengine.services.indexing;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов к каждому хосту (token bucket).
+ * Метод {@link #tryAcquire(String)} не блокирует поток: он либо сразу выдаёт
+ * разрешение на запрос, либо возвращает время до следующего разрешения,
+ * и поток-загрузчик может заняться другим сайтом.
+ */
+@Component
+public class HostPolitenessScheduler {
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Регистрирует хост с заданной частотой запросов. Если хост уже
+     * зарегистрирован (несколько сайтов на одном хосте), остаётся меньшая частота.
+     */
+    public void register(String host, double requestsPerSecond, int burst) {
+        double rate = requestsPerSecond > 0 ? requestsPerSecond : 1.0;
+        int capacity = Math.max(1, burst);
+        buckets.merge(key(host), new Bucket(rate, capacity),
+                (current, added) -> current.rate <= added.rate ? current : added);
+    }
+
+    /**
+     * @return 0, если запрос к хосту можно отправить сейчас (разрешение уже израсходовано),
+     * иначе — сколько наносекунд осталось ждать следующего разрешения
+     */
+    public long tryAcquire(String host) {
+        Bucket bucket = buckets.get(key(host));
+        if (bucket == null) {
+            return 0;
+        }
+        return bucket.tryAcquire(System.nanoTime());
+    }
+
+    public void unregister(String host) {
+        buckets.remove(key(host));
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    private String key(String host) {
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Bucket {
+        private final double rate;
+        private final int capacity;
+        private final long nanosPerToken;
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double rate, int capacity) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized long tryAcquire(long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + (double) elapsed / nanosPerToken);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) ((1 - tokens) * nanosPerToken);
+        }
+    }
+}
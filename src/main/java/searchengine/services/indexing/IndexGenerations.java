@@ -0,0 +1,132 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.model.Generation;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.SiteRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Сборка индекса без простоя поиска. Полный обход и переиндексация сайта, у которого уже есть
+ * индекс, пишут в новую строку site с поколением SHADOW: страницы, леммы и индекс привязаны
+ * к ней, а поиск читает только строки CURRENT. Успешная сборка становится текущей одним UPDATE,
+ * прежний индекс получает RETIRED и удаляется в фоне ({@link SitePurger}). Неудачная или остановленная сборка
+ * удаляется, поиск остаётся на прежнем индексе.
+ */
+@Slf4j
+@Component
+public class IndexGenerations {
+
+    private final SiteRepository siteRepository;
+    private final SitePurger sitePurger;
+    private final ExecutorService cleaner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IndexGenerations(SiteRepository siteRepository, SitePurger sitePurger) {
+        this.siteRepository = siteRepository;
+        this.sitePurger = sitePurger;
+    }
+
+    /**
+     * Удаление, прерванное перезапуском, продолжается в фоне.
+     */
+    @PostConstruct
+    public void purgeRetired() {
+        cleaner.execute(() -> {
+            try {
+                sitePurger.purgeRetired();
+            } catch (Exception e) {
+                log.warn("Не удалось удалить прежние индексы: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    /**
+     * Создаёт строку сайта для новой сборки в статусе INDEXING: теневую, если у сайта уже есть
+     * текущий индекс, иначе сразу текущую. Незавершённая прежняя сборка удаляется.
+     */
+    public Site createBuild(String url, String name) {
+        Site stale = siteRepository.findShadowByUrl(url);
+        if (stale != null) {
+            retire(stale);
+        }
+        Site build = new Site();
+        build.setUrl(url);
+        build.setName(name);
+        build.setStatus(Status.INDEXING);
+        build.setStatusTime(LocalDateTime.now());
+        build.setGeneration(siteRepository.findByUrl(url) != null ? Generation.SHADOW : Generation.CURRENT);
+        return siteRepository.save(build);
+    }
+
+    /**
+     * Сборка закончена, её статус уже записан. INDEXED — сборка становится текущей, иначе
+     * удаляется, а причина записывается в last_error текущего индекса.
+     * Для строки, которая не строилась как теневая, ничего не делает.
+     */
+    public void finish(Site build) {
+        Site stored = siteRepository.findById(build.getId()).orElse(null);
+        if (stored == null || stored.getGeneration() != Generation.SHADOW) {
+            // Уже переключена или удалена, например другим узлом кластера
+            return;
+        }
+        Site current = siteRepository.findByUrl(build.getUrl());
+        if (current == null) {
+            siteRepository.updateGeneration(build.getId(), Generation.CURRENT);
+            build.setGeneration(Generation.CURRENT);
+        } else if (build.getStatus() == Status.INDEXED) {
+            siteRepository.cutover(build.getId(), current.getId());
+            build.setGeneration(Generation.CURRENT);
+            current.setGeneration(Generation.RETIRED);
+            log.info("Поиск по {} переключён на новый индекс", build.getUrl());
+            purge(current);
+        } else {
+            retire(build);
+            siteRepository.updateHeartbeat(current.getId(), current.getStatusTime(),
+                    "Новый индекс не построен, поиск использует прежний: " + build.getLastError());
+        }
+    }
+
+    /**
+     * Убирает из поиска и удаляет в фоне сайты, которых больше нет в конфигурации.
+     */
+    public void retireUnlisted(Collection<String> urls) {
+        for (Site site : siteRepository.findAll()) {
+            if (site.getGeneration() != Generation.RETIRED && !urls.contains(site.getUrl())) {
+                retire(site);
+            }
+        }
+    }
+
+    private void retire(Site site) {
+        siteRepository.updateGeneration(site.getId(), Generation.RETIRED);
+        site.setGeneration(Generation.RETIRED);
+        purge(site);
+    }
+
+    private void purge(Site site) {
+        cleaner.execute(() -> {
+            try {
+                sitePurger.purge(site);
+            } catch (Exception e) {
+                log.warn("Не удалось удалить прежний индекс {}: {}", site.getUrl(), e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package searchengine.services.indexing;
+
+import searchengine.model.Site;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Связь обхода сайта на этом узле с общей очередью кластера. Потоки обхода только
+ * складывают сюда найденные URL и завершённые аренды; в БД их переносит {@link ClusterFrontier}
+ * одним проходом раз в cluster-sync-interval-ms, так что запросы к таблице frontier
+ * не попадают на путь загрузки страниц.
+ */
+class LeasedFrontier {
+
+    private final Site site;
+    // Найденные на этом узле URL, которые ещё не записаны в общую очередь
+    private final Queue<FrontierEntry> outbound = new ConcurrentLinkedQueue<>();
+    // URL, взятые этим узлом в аренду, и их id в таблице frontier
+    private final Map<String, Long> leased = new ConcurrentHashMap<>();
+    // id обработанных URL, которые ещё не отмечены в БД
+    private final Queue<Long> done = new ConcurrentLinkedQueue<>();
+
+    LeasedFrontier(Site site) {
+        this.site = site;
+    }
+
+    Site getSite() {
+        return site;
+    }
+
+    void publish(FrontierEntry entry) {
+        outbound.add(entry);
+    }
+
+    boolean hasOutbound() {
+        return !outbound.isEmpty();
+    }
+
+    List<FrontierEntry> drainOutbound(int max) {
+        List<FrontierEntry> batch = new ArrayList<>();
+        FrontierEntry entry;
+        while (batch.size() < max && (entry = outbound.poll()) != null) {
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    void leased(String url, long id) {
+        leased.put(url, id);
+    }
+
+    /**
+     * URL обработан: аренда будет закрыта при следующей синхронизации.
+     */
+    void done(String url) {
+        Long id = leased.remove(url);
+        if (id != null) {
+            done.add(id);
+        }
+    }
+
+    List<Long> drainDone() {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = done.poll()) != null) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Снимает с учёта аренды URL, которые не обрабатываются (не переданы в {@code inFlight}).
+     *
+     * @return их id для возврата в общую очередь
+     */
+    List<Long> takeIdle(Map<String, ?> inFlight) {
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<String, Long> lease : leased.entrySet()) {
+            if (!inFlight.containsKey(lease.getKey()) && leased.remove(lease.getKey(), lease.getValue())) {
+                ids.add(lease.getValue());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return id всех удерживаемых аренд; учёт аренд очищается
+     */
+    List<Long> takeAll() {
+        List<Long> ids = new ArrayList<>(leased.values());
+        leased.clear();
+        return ids;
+    }
+
+    int leasedCount() {
+        return leased.size();
+    }
+}
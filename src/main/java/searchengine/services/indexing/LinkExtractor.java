@@ -0,0 +1,106 @@
+package searchengine.services.indexing;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Извлечение ссылок со страницы: канонизация, фильтрация и устранение
+ * повторов внутри страницы. Проверка по множеству посещённых URL
+ * выполняется в {@link SiteMapBuilder} до постановки в очередь.
+ */
+public class LinkExtractor {
+
+    private static final Pattern BINARY_RESOURCE = Pattern.compile(
+            ".*\\.(jpg|jpeg|png|gif|bmp|pdf|doc|docx|xls|xlsx|ppt|pptx|mp3|mp4|avi|mov|wmv|zip|rar)$");
+    private static final int MAX_URL_LENGTH = 2048;
+
+    private final UrlCanonicalizer canonicalizer;
+    private final String siteHost;
+
+    public LinkExtractor(String siteUrl) {
+        this(new StandardUrlCanonicalizer(siteUrl, List.of()), siteUrl);
+    }
+
+    public LinkExtractor(UrlCanonicalizer canonicalizer, String siteUrl) {
+        this.canonicalizer = canonicalizer;
+        String root = canonicalizer.canonicalize(siteUrl);
+        this.siteHost = root != null ? hostOf(root) : null;
+    }
+
+    public ExtractedLinks extract(Document document) {
+        Elements anchors = document.select("a[href]");
+        // Ключ страницы -> первый найденный адрес: /a и /a/ ведут на одну страницу
+        Map<String, String> urls = new LinkedHashMap<>();
+        int filtered = 0;
+        for (Element anchor : anchors) {
+            String url = normalize(anchor.absUrl("href"));
+            if (url == null) {
+                filtered++;
+            } else {
+                urls.putIfAbsent(keyOf(url), url);
+            }
+        }
+        return new ExtractedLinks(anchors.size(), filtered, new ArrayList<>(urls.values()));
+    }
+
+    /**
+     * Адрес из &lt;link rel="canonical"&gt;, если он указывает на страницу того же сайта.
+     *
+     * @return канонический URL страницы или null
+     */
+    public String canonicalOf(Document document) {
+        Element link = document.selectFirst("link[rel=canonical][href]");
+        return link != null ? normalize(link.absUrl("href")) : null;
+    }
+
+    /**
+     * Приводит URL к каноническому виду (см. {@link UrlCanonicalizer})
+     * и отбрасывает ссылки на другие хосты и бинарные ресурсы.
+     *
+     * @return канонический URL или null, если ссылку обходить не нужно
+     */
+    public String normalize(String candidateUrl) {
+        if (candidateUrl == null || candidateUrl.isEmpty() || candidateUrl.length() >= MAX_URL_LENGTH) {
+            return null;
+        }
+        String url = canonicalizer.canonicalize(candidateUrl);
+        if (url == null || siteHost == null || !siteHost.equals(hostOf(url))) {
+            return null;
+        }
+        int pathStart = url.indexOf('/', url.indexOf("://") + 3);
+        int queryStart = url.indexOf('?', pathStart);
+        String path = queryStart >= 0 ? url.substring(pathStart, queryStart) : url.substring(pathStart);
+        // фильтр бинарных ресурсов
+        if (BINARY_RESOURCE.matcher(path.toLowerCase(Locale.ROOT)).matches()) {
+            return null;
+        }
+        return url;
+    }
+
+    /**
+     * @return ключ страницы для множества посещённых URL и page.path (см. {@link UrlCanonicalizer#dedupKey})
+     */
+    public String keyOf(String url) {
+        return canonicalizer.dedupKey(url);
+    }
+
+    /**
+     * Хост канонического URL: между "://" и портом или первым слэшем пути.
+     */
+    private static String hostOf(String url) {
+        int start = url.indexOf("://") + 3;
+        int end = start;
+        while (end < url.length() && url.charAt(end) != '/' && url.charAt(end) != ':') {
+            end++;
+        }
+        return url.substring(start, end);
+    }
+}
@@ -0,0 +1,111 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import javax.management.NotificationEmitter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Следит за занятостью кучи после сборки мусора. Пока занято больше
+ * crawler-settings.memory-pressure-ratio от потолка памяти обхода, потоки загрузки
+ * не берут новые страницы, а конвейер дорабатывает уже загруженные и освобождает память.
+ * О превышении порога JVM сообщает уведомлением пулов памяти; снятие давления
+ * проверяется опросом с небольшим запасом, чтобы обход не дёргался на границе.
+ */
+@Slf4j
+@Component
+public class MemoryPressureMonitor {
+
+    private static final long CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Давление снимается, когда занятость опустилась на 10% ниже порога
+    private static final double RELEASE_FACTOR = 0.9;
+    private static final long MB = 1024 * 1024;
+
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    private final long limitBytes;
+    private final long pressureBytes;
+    private volatile boolean underPressure;
+    private volatile long checkedAt = System.nanoTime() - CHECK_INTERVAL_NANOS;
+
+    public MemoryPressureMonitor(CrawlerSettings crawlerSettings) {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        long ceiling = crawlerSettings.getMemoryCeilingMb() > 0 ? crawlerSettings.getMemoryCeilingMb() * MB : maxHeap;
+        limitBytes = maxHeap > 0 && maxHeap < Long.MAX_VALUE ? Math.min(ceiling, maxHeap) : ceiling;
+        double ratio = Math.min(1.0, Math.max(0.1, crawlerSettings.getMemoryPressureRatio()));
+        pressureBytes = (long) (limitBytes * ratio);
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                heapPools.add(pool);
+                long poolMax = pool.getUsage().getMax();
+                pool.setCollectionUsageThreshold(poolMax > 0 ? Math.min(pressureBytes, poolMax) : pressureBytes);
+            }
+        }
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter) {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener((notification, handback) -> {
+                if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                    setPressure(true, usedAfterGc());
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * @return true, если новые страницы брать не следует
+     */
+    public boolean isUnderPressure() {
+        long now = System.nanoTime();
+        if (now - checkedAt >= CHECK_INTERVAL_NANOS) {
+            checkedAt = now;
+            long used = usedAfterGc();
+            if (underPressure) {
+                setPressure(used >= pressureBytes * RELEASE_FACTOR, used);
+            } else {
+                setPressure(used >= pressureBytes, used);
+            }
+        }
+        return underPressure;
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     * Занятость кучи по итогам последней сборки мусора: мусор, который ещё не собран,
+     * не должен останавливать обход.
+     */
+    long usedAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    private synchronized void setPressure(boolean pressure, long used) {
+        if (pressure == underPressure) {
+            return;
+        }
+        underPressure = pressure;
+        if (pressure) {
+            log.warn("Нехватка памяти: после сборки мусора занято {} МБ из {} МБ, загрузка новых страниц приостановлена",
+                    used / MB, limitBytes / MB);
+        } else {
+            log.info("Память освободилась: занято {} МБ из {} МБ, загрузка страниц продолжается",
+                    used / MB, limitBytes / MB);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.PageError;
+import searchengine.model.Site;
+import searchengine.repository.PageErrorRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сбои отдельных страниц при обходе. Временные (сеть, таймаут, HTTP 429 и 5xx) откладываются
+ * на повтор с экспоненциальной задержкой; остальные и исчерпавшие попытки записываются
+ * в таблицу page_error и учитываются в доле ошибок сайта {@link SiteStatusTracker}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PageFailureHandler {
+
+    private final CrawlerSettings crawlerSettings;
+    private final PageErrorRepository pageErrorRepository;
+    private final SiteStatusTracker statusTracker;
+
+    /**
+     * @return true для ответов, которые при повторе обычно проходят
+     */
+    public static boolean isTransient(int statusCode) {
+        return statusCode == 429 || statusCode == 500 || statusCode == 502
+                || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Откладывает повторную загрузку, если попытки не исчерпаны.
+     *
+     * @return true, если повтор запланирован и текущую попытку дальше обрабатывать не нужно
+     */
+    public boolean retry(SiteCrawl crawl, FrontierEntry entry, String reason) {
+        if (entry.getAttempt() >= crawlerSettings.getRetryMaxAttempts()) {
+            return false;
+        }
+        long delay = backoffMillis(entry.getAttempt());
+        if (!crawl.scheduleRetry(entry, TimeUnit.MILLISECONDS.toNanos(delay))) {
+            return false;
+        }
+        log.debug("Повтор {} через {} мс ({}), попытка {}", entry.getUrl(), delay, reason, entry.getAttempt() + 2);
+        return true;
+    }
+
+    /**
+     * Страница не обработана окончательно: запись в page_error и учёт в статусе сайта.
+     *
+     * @param stage    стадия обработки: fetch, parse или persist
+     * @param attempts сколько раз страница загружалась
+     * @param code     HTTP-код или null, если ответа не было
+     */
+    public void recordFailure(Site site, String url, String path, String stage,
+                              int attempts, Integer code, String message) {
+        log.debug("Страница {} не обработана ({}, попыток {}): {}", url, stage, attempts, message);
+        statusTracker.recordError(site, url + ": " + message);
+        PageError error = new PageError();
+        error.setSite(site);
+        error.setPath(path);
+        error.setStage(stage);
+        error.setAttempts(attempts);
+        error.setCode(code);
+        error.setMessage(message);
+        error.setErrorTime(LocalDateTime.now());
+        try {
+            pageErrorRepository.save(error);
+        } catch (Exception e) {
+            log.warn("Не удалось записать ошибку страницы {}: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * Задержка перед повтором: base, 2 * base, 4 * base... не больше retry-max-delay-ms.
+     */
+    long backoffMillis(int attempt) {
+        long base = Math.max(0, crawlerSettings.getRetryBaseDelayMs());
+        long max = Math.max(base, crawlerSettings.getRetryMaxDelayMs());
+        return Math.min(max, base << Math.min(attempt, 30));
+    }
+
+    public static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,252 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Общий HTTP-клиент для обхода и индексации отдельных страниц.
+ * Один {@link HttpClient} держит пул соединений по хостам, использует HTTP/2,
+ * если сервер его поддерживает, и запрашивает сжатые ответы.
+ * Задержка ответов и ошибки передаются в {@link AdaptiveHostLimiter}.
+ * Тип и длина проверяются по заголовкам до чтения тела: ответы не-HTML и слишком
+ * большие обрываются, тело читается потоком не больше crawler-settings.max-page-bytes
+ * и не дольше crawler-settings.body-timeout-ms: зависший на середине тела сервер не занимает
+ * поток-загрузчик.
+ * Служебные файлы (robots.txt) загружаются {@link #fetchText(String)}, который принимает
+ * также текст и XML.
+ * Jsoup только разбирает полученные байты.
+ */
+@Slf4j
+@Component
+public class PageFetcher {
+
+    // br не запрашиваем: в JDK нет декодера Brotli
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final String ACCEPT_HTML = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+    private static final String ACCEPT_TEXT = "text/plain,application/xml,text/xml;q=0.9,*/*;q=0.8";
+
+    private final CrawlerSettings crawlerSettings;
+    private final AdaptiveHostLimiter hostLimiter;
+    private final HttpClient httpClient;
+    // Закрывает поток тела, если чтение не уложилось в body-timeout-ms
+    private final ScheduledExecutorService bodyDeadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fetch-body-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PageFetcher(CrawlerSettings crawlerSettings, AdaptiveHostLimiter hostLimiter) {
+        this.crawlerSettings = crawlerSettings;
+        this.hostLimiter = hostLimiter;
+        // Имена разрешаются через InetAddress; срок кэша DNS задаётся при запуске JVM (-Dsun.net.inetaddr.ttl)
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(crawlerSettings.getConnectTimeoutMs()))
+                .build();
+    }
+
+    public FetchResult fetch(String url) throws IOException, InterruptedException {
+        return fetch(url, null, null);
+    }
+
+    /**
+     * Условный запрос: при заданных валидаторах отправляет If-None-Match / If-Modified-Since,
+     * и неизменившаяся страница приходит ответом 304 без тела.
+     */
+    public FetchResult fetch(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        return fetch(url, etag, lastModified, ACCEPT_HTML, FetchResult::isHtmlType, crawlerSettings.getMaxPageBytes());
+    }
+
+    /**
+     * Загрузка служебного текстового файла (robots.txt): принимаются HTML, текст и XML,
+     * остальные типы отклоняются так же, как в {@link #fetch(String)}.
+     */
+    public FetchResult fetchText(String url) throws IOException, InterruptedException {
+        return fetch(url, null, null, ACCEPT_TEXT, FetchResult::isTextType, crawlerSettings.getMaxPageBytes());
+    }
+
+    /**
+     * Загрузка карты сайта с тем же сроком чтения тела, что и у страниц, но со своим лимитом размера.
+     * Тип содержимого не проверяется: карты .gz часто отдаются как application/octet-stream.
+     * Сжатый файл, который сервер отдал без Content-Encoding, распаковывается с тем же лимитом.
+     *
+     * @throws IOException если сервер ответил не кодом 200 или карта больше maxBytes
+     */
+    public byte[] fetchSitemap(String url, long maxBytes) throws IOException, InterruptedException {
+        FetchResult response = fetch(url, null, null, ACCEPT_TEXT, contentType -> true, maxBytes);
+        if (response.isRejected()) {
+            throw new IOException("Карта сайта больше " + maxBytes + " байт: " + url);
+        }
+        if (response.getStatusCode() != 200) {
+            throw new IOException("HTTP " + response.getStatusCode() + " для " + url);
+        }
+        byte[] body = response.getBody();
+        if (body.length >= 2 && (body[0] & 0xFF) == 0x1F && (body[1] & 0xFF) == 0x8B) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = readLimited(in, maxBytes);
+            }
+            if (body == null) {
+                throw new IOException("Карта сайта больше " + maxBytes + " байт после распаковки: " + url);
+            }
+        }
+        return body;
+    }
+
+    private FetchResult fetch(String url, String etag, String lastModified, String accept,
+                              Predicate<String> acceptedType, long maxBytes)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(crawlerSettings.getReadTimeoutMs()))
+                .header("User-Agent", crawlerSettings.getUserAgent())
+                .header("Accept", accept)
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .GET();
+        if (etag != null && !etag.isEmpty()) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null && !lastModified.isEmpty()) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+
+        HttpRequest request = builder.build();
+        String host = request.uri().getHost();
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            hostLimiter.recordFailure(host, System.nanoTime() - started, true);
+            throw e;
+        } catch (IOException e) {
+            hostLimiter.recordFailure(host, System.nanoTime() - started, false);
+            throw e;
+        }
+        hostLimiter.recordResponse(host, System.nanoTime() - started, response.statusCode(),
+                response.headers().firstValue("Retry-After").orElse(null));
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        String responseEtag = response.headers().firstValue("ETag").orElse(null);
+        String responseLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("")
+                .toLowerCase(Locale.ROOT);
+
+        String finalUrl = response.uri().toString();
+        int statusCode = response.statusCode();
+
+        if (statusCode == 304) {
+            response.body().close();
+            return new FetchResult(finalUrl, 304, contentType, new byte[0],
+                    responseEtag, responseLastModified);
+        }
+        // Закрытие потока до чтения обрывает загрузку тела
+        if (!acceptedType.test(contentType)) {
+            response.body().close();
+            return FetchResult.rejected(finalUrl, statusCode, contentType, FetchRejection.CONTENT_TYPE);
+        }
+        if (response.headers().firstValueAsLong("Content-Length").orElse(-1) > maxBytes) {
+            response.body().close();
+            return FetchResult.rejected(finalUrl, statusCode, contentType, FetchRejection.TOO_LARGE);
+        }
+
+        // HttpRequest.timeout ограничивает только ожидание заголовков; закрытие потока
+        // по таймеру прерывает заблокированное чтение тела
+        InputStream raw = response.body();
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = bodyDeadlines.schedule(() -> {
+            expired.set(true);
+            closeQuietly(raw);
+        }, crawlerSettings.getBodyTimeoutMs(), TimeUnit.MILLISECONDS);
+        byte[] bytes;
+        try (InputStream body = decode(raw, encoding)) {
+            bytes = readLimited(body, maxBytes);
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw bodyTimeout(host, started, url);
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+        if (expired.get()) {
+            // Закрытый по таймеру поток выглядит как конец тела: ответ обрезан
+            throw bodyTimeout(host, started, url);
+        }
+        if (bytes == null) {
+            return FetchResult.rejected(finalUrl, statusCode, contentType, FetchRejection.TOO_LARGE);
+        }
+        return new FetchResult(finalUrl, statusCode, contentType, bytes, responseEtag, responseLastModified);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyDeadlines.shutdownNow();
+    }
+
+    private HttpTimeoutException bodyTimeout(String host, long started, String url) {
+        hostLimiter.recordFailure(host, System.nanoTime() - started, true);
+        return new HttpTimeoutException("Тело ответа не получено за " + crawlerSettings.getBodyTimeoutMs()
+                + " мс: " + url);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // поток уже закрыт или соединение оборвано
+        }
+    }
+
+    /**
+     * Читает поток целиком, если он не длиннее maxBytes (после распаковки).
+     *
+     * @return байты тела или null, если лимит превышен
+     */
+    private static byte[] readLimited(InputStream in, long maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        byte[] buffer = new byte[16 * 1024];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private InputStream decode(InputStream body, String encoding) throws IOException {
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body);
+            case "deflate":
+                return new InflaterInputStream(body);
+            default:
+                return body;
+        }
+    }
+}
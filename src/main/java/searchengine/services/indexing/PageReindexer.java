@@ -0,0 +1,338 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.services.LemmatizationService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Переиндексация по HTML, сохранённому в page.content, без загрузки страниц.
+ * Индекс строится в новой строке сайта ({@link IndexGenerations}): страницы копируются в неё
+ * INSERT ... SELECT по диапазонам id из crawler-settings.reindex-chunk-size строк, каждый — в своей
+ * транзакции, поиск тем временем читает прежний индекс. Копии страниц читаются
+ * порциями по crawler-settings.reindex-chunk-size в порядке id, лемматизируются параллельно
+ * на всех ядрах (reindex-threads). Новые леммы порции записываются saveAll (их немного, и нужны
+ * их id), а строки индекса — пакетами JDBC, которые драйвер с rewriteBatchedStatements=true
+ * отправляет многострочными INSERT.
+ * Частоты лемм пересчитываются в конце одним UPDATE. Копии и почти копии страниц пропускаются
+ * по сохранённым content_hash и simhash — так же, как при обходе. Готовый индекс заменяет прежний
+ * одним UPDATE. Сайты переиндексируются по очереди, каждый — всеми потоками; сайт, запрошенный
+ * во время переиндексации, встаёт в конец очереди, а остановить можно как один сайт, так и все.
+ */
+@Slf4j
+@Component
+public class PageReindexer {
+
+    private final CrawlerSettings crawlerSettings;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final LemmatizationService lemmatizationService;
+    private final IndexGenerations indexGenerations;
+    private final Map<Integer, Counters> progress = new ConcurrentHashMap<>();
+    // Строка сборки -> строка текущего индекса, откуда копируются страницы
+    private final Map<Integer, Integer> sources = new ConcurrentHashMap<>();
+    private final Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+    // Очередь сайтов и поток переиндексации; доступ под монитором компонента
+    private final Deque<Site> queue = new ArrayDeque<>();
+    private Thread runner;
+    private volatile boolean stopped;
+
+    public PageReindexer(CrawlerSettings crawlerSettings,
+                         SiteRepository siteRepository,
+                         PageRepository pageRepository,
+                         LemmaRepository lemmaRepository,
+                         IndexRepository indexRepository,
+                         LemmatizationService lemmatizationService,
+                         IndexGenerations indexGenerations) {
+        this.crawlerSettings = crawlerSettings;
+        this.siteRepository = siteRepository;
+        this.pageRepository = pageRepository;
+        this.lemmaRepository = lemmaRepository;
+        this.indexRepository = indexRepository;
+        this.lemmatizationService = lemmatizationService;
+        this.indexGenerations = indexGenerations;
+    }
+
+    public synchronized boolean isRunning() {
+        return runner != null;
+    }
+
+    /**
+     * Создаёт для каждого сайта строку сборки в статусе INDEXING и ставит её в очередь
+     * переиндексации; поток запускается, если ещё не работает.
+     *
+     * @param sites строки текущего индекса сайтов
+     */
+    public synchronized void start(List<Site> sites) {
+        if (runner == null) {
+            stopped = false;
+            progress.clear();
+        }
+        for (Site site : sites) {
+            Site build = indexGenerations.createBuild(site.getUrl(), site.getName());
+            sources.put(build.getId(), site.getId());
+            queue.add(build);
+        }
+        if (runner == null) {
+            runner = new Thread(this::run, "reindex");
+            runner.setDaemon(true);
+            runner.start();
+        }
+    }
+
+    /**
+     * Прекращает переиндексацию всех сайтов после текущей порции; статус сайтов выставляет вызывающий.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Прекращает переиндексацию одного сайта после текущей порции или убирает его из очереди.
+     *
+     * @param site строка сборки (в статусе INDEXING)
+     */
+    public synchronized void stop(Site site) {
+        cancelled.add(site.getId());
+        queue.removeIf(queued -> queued.getId() == site.getId());
+    }
+
+    /**
+     * @return ход переиндексации сайта или null, если сайт в последнем запуске не участвовал
+     */
+    public ReindexProgress progress(int siteId) {
+        Counters counters = progress.get(siteId);
+        return counters != null ? counters.snapshot() : null;
+    }
+
+    private void run() {
+        int threads = crawlerSettings.getReindexThreads() > 0
+                ? crawlerSettings.getReindexThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reindex-lemmatize-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Site site;
+            while ((site = next()) != null) {
+                reindexSite(site, pool);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return следующий сайт или null, если очередь пуста; тогда поток завершается
+     */
+    private synchronized Site next() {
+        if (stopped || queue.isEmpty()) {
+            queue.clear();
+            runner = null;
+            return null;
+        }
+        return queue.poll();
+    }
+
+    private boolean isStopped(Site site) {
+        return stopped || cancelled.contains(site.getId());
+    }
+
+    private void reindexSite(Site site, ExecutorService pool) {
+        Integer sourceId = sources.remove(site.getId());
+        Counters counters = new Counters();
+        progress.put(site.getId(), counters);
+        try {
+            int chunkSize = Math.max(1, crawlerSettings.getReindexChunkSize());
+            if (sourceId != null && sourceId != site.getId()) {
+                long copied = copyPages(site, sourceId, chunkSize);
+                if (isStopped(site)) {
+                    log.info("Переиндексация {} остановлена", site.getUrl());
+                    return;
+                }
+                log.info("Переиндексация {}: скопировано страниц {}", site.getUrl(), copied);
+            }
+            counters.total = pageRepository.countBySiteAndCode(site, 200);
+
+            Map<String, Lemma> lemmas = new HashMap<>();
+            Set<String> contentHashes = new HashSet<>();
+            SimHashIndex nearDuplicates = crawlerSettings.isNearDuplicateDetection()
+                    ? SimHashIndex.forSimilarity(crawlerSettings.getNearDuplicateSimilarity())
+                    : null;
+            int afterId = 0;
+            while (!isStopped(site)) {
+                List<Page> chunk = pageRepository.findIndexable(site, afterId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+                reindexChunk(site, chunk, pool, lemmas, contentHashes, nearDuplicates, counters);
+            }
+            if (isStopped(site)) {
+                log.info("Переиндексация {} остановлена", site.getUrl());
+                return;
+            }
+            lemmaRepository.updateFrequenciesBySite(site);
+            counters.finished = true;
+            site.setStatus(Status.INDEXED);
+            site.setStatusTime(LocalDateTime.now());
+            siteRepository.save(site);
+            indexGenerations.finish(site);
+            ReindexProgress result = counters.snapshot();
+            log.info("Переиндексация {} завершена: страниц {}, проиндексировано {}, копий {}, лемм {}, {} стр/с",
+                    site.getUrl(), result.getProcessed(), result.getIndexed(), result.getDuplicates(),
+                    result.getLemmas(), String.format("%.1f", result.getPagesPerSecond()));
+        } catch (Exception e) {
+            if (isStopped(site)) {
+                // Сборку уже убрал тот, кто остановил переиндексацию
+                return;
+            }
+            log.error("Ошибка переиндексации сайта " + site.getUrl(), e);
+            site.setStatus(Status.FAILED);
+            site.setLastError("Ошибка переиндексации: " + PageFailureHandler.describe(e));
+            site.setStatusTime(LocalDateTime.now());
+            siteRepository.save(site);
+            indexGenerations.finish(site);
+        }
+    }
+
+    /**
+     * Копирует страницы строки текущего индекса в строку сборки диапазонами id по chunkSize строк.
+     *
+     * @return число скопированных страниц
+     */
+    private long copyPages(Site site, int sourceId, int chunkSize) {
+        long copied = 0;
+        int afterId = 0;
+        Integer toId;
+        while (!isStopped(site) && (toId = pageRepository.findChunkEnd(sourceId, afterId, chunkSize)) != null) {
+            copied += pageRepository.copyPages(sourceId, site.getId(), afterId, toId);
+            afterId = toId;
+        }
+        return copied;
+    }
+
+    private void reindexChunk(Site site, List<Page> chunk, ExecutorService pool, Map<String, Lemma> lemmas,
+                              Set<String> contentHashes, SimHashIndex nearDuplicates, Counters counters)
+            throws InterruptedException {
+        // Копии отбираются до лемматизации и по порядку id: индексируется первая из одинаковых страниц
+        List<Page> pages = new ArrayList<>(chunk.size());
+        List<Future<Map<String, Integer>>> lemmatized = new ArrayList<>(chunk.size());
+        for (Page page : chunk) {
+            if ((page.getContentHash() != null && !contentHashes.add(page.getContentHash()))
+                    || (nearDuplicates != null && page.getSimhash() != null
+                    && nearDuplicates.findOrAdd(page.getSimhash(), page.getId()) != null)) {
+                counters.duplicates.incrementAndGet();
+                counters.processed.incrementAndGet();
+                continue;
+            }
+            String content = page.getContent();
+            // HTML не нужен после лемматизации: порция не держит его до записи
+            page.setContent(null);
+            pages.add(page);
+            lemmatized.add(pool.submit(() -> lemmatizationService.getLemmas(
+                    lemmatizationService.cleanHtmlContent(content))));
+        }
+
+        List<Lemma> newLemmas = new ArrayList<>();
+        List<Map<String, Integer>> pageLemmas = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            Map<String, Integer> words;
+            try {
+                words = lemmatized.get(i).get();
+            } catch (ExecutionException e) {
+                log.warn("Не удалось лемматизировать страницу {}{}: {}", site.getUrl(), pages.get(i).getPath(),
+                        e.getCause().toString());
+                counters.errors.incrementAndGet();
+                words = Map.of();
+            }
+            pageLemmas.add(words);
+            for (String word : words.keySet()) {
+                if (!lemmas.containsKey(word)) {
+                    Lemma lemma = new Lemma();
+                    lemma.setSite(site);
+                    lemma.setLemma(word);
+                    // Частота считается по индексу после записи всех порций
+                    lemma.setFrequency(0);
+                    lemmas.put(word, lemma);
+                    newLemmas.add(lemma);
+                }
+            }
+        }
+        for (Lemma saved : lemmaRepository.saveAll(newLemmas)) {
+            lemmas.put(saved.getLemma(), saved);
+        }
+
+        List<Index> rows = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            Map<String, Integer> words = pageLemmas.get(i);
+            for (Map.Entry<String, Integer> word : words.entrySet()) {
+                Index index = new Index();
+                index.setPage(pages.get(i));
+                index.setLemma(lemmas.get(word.getKey()));
+                index.setRank(word.getValue().floatValue());
+                rows.add(index);
+            }
+            if (!words.isEmpty()) {
+                counters.indexed.incrementAndGet();
+            }
+            counters.processed.incrementAndGet();
+        }
+        indexRepository.insertBatch(rows);
+        counters.lemmas = lemmas.size();
+    }
+
+    /**
+     * Счётчики переиндексации сайта: пишет поток переиндексации, читает статистика.
+     */
+    private static final class Counters {
+        // Известно после копирования страниц
+        private volatile long total;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private volatile long lemmas;
+        private volatile boolean finished;
+
+        private ReindexProgress snapshot() {
+            long done = processed.get();
+            double seconds = Math.max(System.nanoTime() - startedNanos, 1) / 1e9;
+            return new ReindexProgress(total, done, indexed.get(), duplicates.get(), errors.get(),
+                    lemmas, done / seconds, finished);
+        }
+    }
+}
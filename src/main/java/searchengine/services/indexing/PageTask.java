@@ -0,0 +1,52 @@
+package searchengine.services.indexing;
+
+import searchengine.model.Page;
+
+import java.util.Map;
+
+/**
+ * Страница, которая проходит стадии конвейера обхода. Каждая стадия заполняет свои поля
+ * и освобождает то, что дальше не нужно (тело ответа после разбора).
+ * Стадии выполняются последовательно, поэтому поля не требуют синхронизации:
+ * передача через очередь стадии обеспечивает их видимость.
+ */
+public class PageTask {
+
+    final String url;
+    final int depth;
+    // Номер попытки загрузки, 0 — первая
+    int attempt;
+    String path;
+    boolean canonicalTarget;
+    // Сохранённая страница; pageLoaded = true, если её уже искали в БД
+    Page page;
+    boolean pageLoaded;
+    FetchResult response;
+    int statusCode;
+    String etag;
+    String lastModified;
+    String content;
+    String cleanContent;
+    String contentHash;
+    Long simHash;
+    boolean unchanged;
+    boolean nearDuplicate;
+    Map<String, Integer> lemmas;
+
+    PageTask(String url, int depth) {
+        this.url = url;
+        this.depth = depth;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Лемматизация нужна только новому или изменившемуся тексту успешной страницы,
+     * который не совпал почти полностью с уже проиндексированным.
+     */
+    boolean needsLemmas() {
+        return statusCode == 200 && !unchanged && !nearDuplicate;
+    }
+}
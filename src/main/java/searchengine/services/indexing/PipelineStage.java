@@ -0,0 +1,91 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стадия конвейера обхода: свои потоки и ограниченная очередь перед ними.
+ * Когда очередь заполнена, {@link #submit(Runnable)} блокирует поток предыдущей стадии,
+ * так что медленная стадия притормаживает все стадии до неё, вплоть до загрузки.
+ */
+@Slf4j
+class PipelineStage {
+
+    private static final long POLL_MS = 100;
+
+    private final String name;
+    private final int threads;
+    private final BlockingQueue<Runnable> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final StageMetrics metrics = new StageMetrics();
+    private volatile boolean running = true;
+
+    PipelineStage(String name, int threads, int capacity) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        for (int i = 1; i <= this.threads; i++) {
+            Thread thread = new Thread(this::runWorker, "crawl-" + name + "-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Ставит задачу в очередь стадии, ожидая места. После {@link #stop()} задача отбрасывается.
+     */
+    void submit(Runnable task) throws InterruptedException {
+        while (!queue.offer(task, POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (!running) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Потоки завершатся, когда выполнят уже поставленные задачи.
+     */
+    void shutdown() {
+        running = false;
+    }
+
+    /**
+     * Немедленная остановка: очередь очищается, потоки прерываются.
+     */
+    void stop() {
+        running = false;
+        queue.clear();
+        workers.forEach(Thread::interrupt);
+    }
+
+    PipelineStageSnapshot snapshot() {
+        return metrics.snapshot(name, threads, queue.size(), queue.size() + queue.remainingCapacity());
+    }
+
+    private void runWorker() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Runnable task = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                long started = metrics.begin();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Ошибка на стадии " + name, e);
+                } finally {
+                    metrics.end(started);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Состояние стадии конвейера обхода для статистики.
+ */
+@Getter
+public class PipelineStageSnapshot {
+    private final String name;
+    private final int threads;
+    private final int active;
+    private final int queued;
+    private final int queueCapacity;
+    private final long processed;
+    private final double perSecond;
+    private final double averageMs;
+
+    public PipelineStageSnapshot(String name, int threads, int active, int queued, int queueCapacity,
+                                 long processed, double perSecond, double averageMs) {
+        this.name = name;
+        this.threads = threads;
+        this.active = active;
+        this.queued = queued;
+        this.queueCapacity = queueCapacity;
+        this.processed = processed;
+        this.perSecond = perSecond;
+        this.averageMs = averageMs;
+    }
+}
@@ -0,0 +1,22 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Ход удаления прежнего индекса сайта для статистики.
+ */
+@Getter
+public class PurgeProgress {
+    private final String url;
+    // Таблица, из которой сейчас удаляются строки
+    private final String table;
+    private final long deleted;
+    private final double rowsPerSecond;
+
+    public PurgeProgress(String url, String table, long deleted, double rowsPerSecond) {
+        this.url = url;
+        this.table = table;
+        this.deleted = deleted;
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Ход переиндексации одного сайта для статистики.
+ */
+@Getter
+public class ReindexProgress {
+    // Успешно загруженных страниц сайта на момент запуска
+    private final long total;
+    private final long processed;
+    private final long indexed;
+    // Копии и почти копии уже проиндексированных страниц
+    private final long duplicates;
+    private final long errors;
+    private final long lemmas;
+    private final double pagesPerSecond;
+    private final boolean finished;
+
+    public ReindexProgress(long total, long processed, long indexed, long duplicates, long errors,
+                           long lemmas, double pagesPerSecond, boolean finished) {
+        this.total = total;
+        this.processed = processed;
+        this.indexed = indexed;
+        this.duplicates = duplicates;
+        this.errors = errors;
+        this.lemmas = lemmas;
+        this.pagesPerSecond = pagesPerSecond;
+        this.finished = finished;
+    }
+}
@@ -0,0 +1,184 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Правила robots.txt для нашего робота: Allow/Disallow с шаблонами * и $,
+ * Crawl-delay и ссылки на карты сайта (Sitemap).
+ * Из нескольких подходящих правил действует самое длинное, при равной длине — Allow.
+ */
+public class RobotsRules {
+
+    private static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), null, Collections.emptyList());
+
+    private final List<Rule> rules;
+    /**
+     * Задержка между запросами из Crawl-delay в секундах или null, если она не задана.
+     */
+    @Getter
+    private final Double crawlDelay;
+    @Getter
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, Double crawlDelay, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelay = crawlDelay;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules allowAll() {
+        return ALLOW_ALL;
+    }
+
+    /**
+     * Разбирает robots.txt и выбирает группу правил для userAgent:
+     * группу с самым длинным совпавшим именем робота, иначе группу "*".
+     */
+    public static RobotsRules parse(String text, String userAgent) {
+        String agent = userAgent == null ? "" : userAgent.toLowerCase(Locale.ROOT);
+        List<String> sitemaps = new ArrayList<>();
+        List<Rule> bestRules = null;
+        Double bestDelay = null;
+        int bestMatch = -1;
+
+        List<String> groupAgents = new ArrayList<>();
+        List<Rule> groupRules = new ArrayList<>();
+        Double groupDelay = null;
+        boolean inRules = false;
+
+        for (String rawLine : text.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (field) {
+                case "user-agent":
+                    if (inRules) {
+                        // Новая группа: подводим итог предыдущей
+                        int match = matchLength(groupAgents, agent);
+                        if (match > bestMatch) {
+                            bestMatch = match;
+                            bestRules = groupRules;
+                            bestDelay = groupDelay;
+                        }
+                        groupAgents = new ArrayList<>();
+                        groupRules = new ArrayList<>();
+                        groupDelay = null;
+                        inRules = false;
+                    }
+                    groupAgents.add(value.toLowerCase(Locale.ROOT));
+                    break;
+                case "allow":
+                case "disallow":
+                    inRules = true;
+                    // Пустой Disallow ничего не запрещает
+                    if (!value.isEmpty()) {
+                        groupRules.add(new Rule(value, field.equals("allow")));
+                    }
+                    break;
+                case "crawl-delay":
+                    inRules = true;
+                    try {
+                        groupDelay = Double.parseDouble(value);
+                    } catch (NumberFormatException ignored) { }
+                    break;
+                case "sitemap":
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (matchLength(groupAgents, agent) > bestMatch) {
+            bestRules = groupRules;
+            bestDelay = groupDelay;
+        }
+        return bestRules == null
+                ? new RobotsRules(Collections.emptyList(), null, sitemaps)
+                : new RobotsRules(bestRules, bestDelay, sitemaps);
+    }
+
+    /**
+     * @param pathAndQuery путь с запросом, например /catalog?page=2
+     */
+    public boolean isAllowed(String pathAndQuery) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path = pathAndQuery == null || pathAndQuery.isEmpty() ? "/" : pathAndQuery;
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null
+                    || rule.length > best.length
+                    || (rule.length == best.length && rule.allow))) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    /**
+     * @return длина самого длинного имени из группы, подходящего роботу; 0 для "*"; -1, если группа не подходит
+     */
+    private static int matchLength(List<String> groupAgents, String agent) {
+        int best = -1;
+        for (String groupAgent : groupAgents) {
+            if (groupAgent.equals("*")) {
+                best = Math.max(best, 0);
+            } else if (!groupAgent.isEmpty() && agent.contains(groupAgent)) {
+                best = Math.max(best, groupAgent.length());
+            }
+        }
+        return best;
+    }
+
+    private static final class Rule {
+        private final boolean allow;
+        private final int length;
+        private final String prefix;
+        private final Pattern pattern;
+
+        private Rule(String value, boolean allow) {
+            this.allow = allow;
+            this.length = value.length();
+            if (value.indexOf('*') < 0 && !value.endsWith("$")) {
+                // Обычное правило — просто префикс, без регулярного выражения
+                this.prefix = value;
+                this.pattern = null;
+            } else {
+                StringBuilder regex = new StringBuilder();
+                boolean anchored = value.endsWith("$");
+                String body = anchored ? value.substring(0, value.length() - 1) : value;
+                String[] parts = body.split("\\*", -1);
+                for (int i = 0; i < parts.length; i++) {
+                    if (i > 0) {
+                        regex.append(".*");
+                    }
+                    regex.append(Pattern.quote(parts[i]));
+                }
+                if (anchored) {
+                    regex.append('$');
+                }
+                this.prefix = null;
+                this.pattern = Pattern.compile(regex.toString());
+            }
+        }
+
+        private boolean matches(String path) {
+            return pattern == null ? path.startsWith(prefix) : pattern.matcher(path).lookingAt();
+        }
+    }
+}
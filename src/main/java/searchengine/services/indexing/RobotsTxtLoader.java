@@ -0,0 +1,86 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Загружает robots.txt один раз на хост и хранит разобранные правила до {@link #clear()}.
+ * Если файла нет (4xx) или он недоступен, обход хоста не ограничивается.
+ */
+@Slf4j
+@Component
+public class RobotsTxtLoader {
+
+    private final CrawlerSettings crawlerSettings;
+    private final PageFetcher pageFetcher;
+    private final ConcurrentMap<String, RobotsRules> cache = new ConcurrentHashMap<>();
+
+    public RobotsTxtLoader(CrawlerSettings crawlerSettings, PageFetcher pageFetcher) {
+        this.crawlerSettings = crawlerSettings;
+        this.pageFetcher = pageFetcher;
+    }
+
+    public RobotsRules rulesFor(String siteUrl) {
+        if (!crawlerSettings.isRobotsTxt()) {
+            return RobotsRules.allowAll();
+        }
+        String origin = originOf(siteUrl);
+        if (origin == null) {
+            return RobotsRules.allowAll();
+        }
+        return cache.computeIfAbsent(origin, this::load);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private RobotsRules load(String origin) {
+        String url = origin + "/robots.txt";
+        try {
+            FetchResult response = pageFetcher.fetchText(url);
+            if (response.getStatusCode() != 200) {
+                log.debug("robots.txt не найден ({}): {}", response.getStatusCode(), url);
+                return RobotsRules.allowAll();
+            }
+            if (response.isRejected()) {
+                log.warn("robots.txt не разобран ({}, {}): {}", response.getRejection(),
+                        response.getContentType(), url);
+                return RobotsRules.allowAll();
+            }
+            String charset = response.getCharset();
+            String text = new String(response.getBody(),
+                    charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8);
+            RobotsRules rules = RobotsRules.parse(text, crawlerSettings.getUserAgent());
+            log.info("Загружен {}: Crawl-delay {}, карт сайта {}", url, rules.getCrawlDelay(), rules.getSitemaps().size());
+            return rules;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RobotsRules.allowAll();
+        } catch (Exception e) {
+            log.warn("Не удалось загрузить {}: {}", url, e.getMessage());
+            return RobotsRules.allowAll();
+        }
+    }
+
+    private static String originOf(String siteUrl) {
+        try {
+            URI uri = new URI(siteUrl);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+            String origin = uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT);
+            return uri.getPort() != -1 ? origin + ":" + uri.getPort() : origin;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package searchengine.services.indexing;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 64-битный SimHash текста по шинглам из двух слов. У похожих текстов
+ * отпечатки отличаются в небольшом числе бит.
+ */
+public final class SimHash {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SimHash() {
+    }
+
+    public static long of(String text) {
+        return of(words(text));
+    }
+
+    public static long of(String[] words) {
+        if (words.length == 0) {
+            return 0L;
+        }
+        int[] weights = new int[64];
+        if (words.length == 1) {
+            addFeature(weights, UrlFingerprint.of(words[0]));
+        }
+        for (int i = 0; i + 1 < words.length; i++) {
+            addFeature(weights, UrlFingerprint.of(words[i] + ' ' + words[i + 1]));
+        }
+        long hash = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                hash |= 1L << bit;
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Доля совпадающих бит, от 0 до 1.
+     */
+    public static double similarity(long a, long b) {
+        return 1.0 - distance(a, b) / 64.0;
+    }
+
+    private static void addFeature(int[] weights, long feature) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((feature >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    public static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = NON_WORD.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+}
@@ -0,0 +1,121 @@
+package searchengine.services.indexing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск почти одинаковых страниц по SimHash за сублинейное время.
+ * Отпечаток делится на maxDistance + 1 полос: если два отпечатка отличаются
+ * не более чем в maxDistance битах, хотя бы одна полоса у них совпадает целиком
+ * (принцип Дирихле), поэтому сравниваются только кандидаты из тех же полос.
+ */
+public class SimHashIndex {
+
+    private final int maxDistance;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+    private final List<Map<Long, List<Entry>>> bands = new ArrayList<>();
+    private int size;
+
+    public SimHashIndex(int maxDistance) {
+        this.maxDistance = Math.max(0, Math.min(maxDistance, 15));
+        int bandCount = this.maxDistance + 1;
+        this.bandShifts = new int[bandCount];
+        this.bandMasks = new long[bandCount];
+        int width = 64 / bandCount;
+        for (int i = 0; i < bandCount; i++) {
+            int bits = i == bandCount - 1 ? 64 - width * i : width;
+            bandShifts[i] = width * i;
+            bandMasks[i] = bits == 64 ? -1L : (1L << bits) - 1;
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Порог сходства (доля совпадающих бит) переводится в допустимое расстояние Хэмминга.
+     */
+    public static SimHashIndex forSimilarity(double similarity) {
+        return new SimHashIndex((int) Math.floor((1.0 - similarity) * 64));
+    }
+
+    /**
+     * Ищет похожую страницу; если её нет, добавляет отпечаток в индекс.
+     *
+     * @return id похожей страницы или null, если страница уникальна и добавлена
+     */
+    public synchronized Integer findOrAdd(long hash, int pageId) {
+        Integer similar = find(hash, pageId);
+        if (similar == null) {
+            add(hash, pageId);
+        }
+        return similar;
+    }
+
+    /**
+     * Ищет похожую страницу, не добавляя отпечаток.
+     *
+     * @param pageId страница, прежний отпечаток которой не учитывается
+     * @return id похожей страницы или null
+     */
+    public synchronized Integer find(long hash, int pageId) {
+        for (int i = 0; i < bands.size(); i++) {
+            List<Entry> candidates = bands.get(i).get(band(hash, i));
+            if (candidates == null) {
+                continue;
+            }
+            for (Entry candidate : candidates) {
+                if (candidate.pageId != pageId && SimHash.distance(candidate.hash, hash) <= maxDistance) {
+                    return candidate.pageId;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized void add(long hash, int pageId) {
+        Entry entry = new Entry(hash, pageId);
+        for (int i = 0; i < bands.size(); i++) {
+            bands.get(i).computeIfAbsent(band(hash, i), k -> new ArrayList<>(1)).add(entry);
+        }
+        size++;
+    }
+
+    /**
+     * Убирает прежний отпечаток страницы, например когда её текст изменился.
+     */
+    public synchronized void remove(long hash, int pageId) {
+        boolean removed = false;
+        for (int i = 0; i < bands.size(); i++) {
+            List<Entry> candidates = bands.get(i).get(band(hash, i));
+            if (candidates != null) {
+                removed |= candidates.removeIf(candidate -> candidate.pageId == pageId);
+                if (candidates.isEmpty()) {
+                    bands.get(i).remove(band(hash, i));
+                }
+            }
+        }
+        if (removed) {
+            size--;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private long band(long hash, int index) {
+        return (hash >>> bandShifts[index]) & bandMasks[index];
+    }
+
+    private static final class Entry {
+        private final long hash;
+        private final int pageId;
+
+        private Entry(long hash, int pageId) {
+            this.hash = hash;
+            this.pageId = pageId;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package searchengine.services.indexing;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import searchengine.model.Site;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние обхода одного сайта: очередь URL на загрузку (frontier),
+ * счётчик задач, которые ещё не завершены, и лимиты обхода
+ * (max-depth, max-pages, max-duration-minutes из indexing-settings.sites).
+ * Для справедливого распределения потоков между сайтами хранит вес, квоту потоков
+ * и виртуальное время: каждая взятая страница сдвигает его на 1 / weight,
+ * и {@link CrawlEngine} обслуживает сайт с наименьшим временем.
+ * Страницы, загрузка которых временно не удалась, ждут повтора в отдельной очереди
+ * и выдаются {@link #poll()} раньше новых URL, как только подошло их время.
+ * В кластере найденные URL уходят в общую очередь {@link LeasedFrontier}, а очередь сайта
+ * на узле пополняется только арендованными оттуда URL.
+ */
+public class SiteCrawl {
+
+    @Getter
+    private final Site site;
+    @Getter
+    private final searchengine.config.Site settings;
+    @Getter
+    private final String rootUrl;
+    @Getter
+    private final String host;
+    @Getter
+    private final CrawlMode mode;
+    private final DepthFrontier frontier = new DepthFrontier();
+    // Повторные загрузки по времени повтора; доступ под монитором самой очереди
+    private final PriorityQueue<RetryEntry> retries =
+            new PriorityQueue<>(Comparator.comparingLong(retry -> retry.dueNanos));
+    // URL, которые взяты из очереди, но ещё не обработаны: попадают в контрольную точку
+    private final Map<String, FrontierEntry> inFlight = new ConcurrentHashMap<>();
+    @Getter
+    private final int maxDepth;
+    private final long maxPages;
+    private final long maxDurationNanos;
+    private final long startedNanos = System.nanoTime();
+    @Getter
+    private final int weight;
+    // 0 — без квоты
+    @Getter
+    private final int maxWorkers;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private double pass;
+    private final AtomicLong pagesTaken = new AtomicLong();
+    // Причина остановки по лимиту; после неё новые URL в очередь не попадают
+    @Getter
+    private volatile String budgetNote;
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private VisitedUrlSet visited;
+    // null, если поиск почти одинаковых страниц выключен
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private SimHashIndex nearDuplicateIndex;
+    // Текст страницы (content_hash) -> id страницы, за которой он закреплён как первый увиденный
+    private final Map<String, Integer> contentOwners = new ConcurrentHashMap<>();
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private RobotsRules robots = RobotsRules.allowAll();
+    // URL, поставленные в очередь по <link rel="canonical">: их собственную ссылку rel=canonical
+    // не учитываем, иначе две страницы, ссылающиеся друг на друга, не сохранились бы обе
+    private final Set<String> canonicalTargets = ConcurrentHashMap.newKeySet();
+    // Начальное заполнение очереди (robots.txt, карты сайта) выполняет один из потоков движка
+    private final AtomicBoolean seedingClaimed = new AtomicBoolean();
+    // Очередь заполнена, состояние можно сохранять в контрольную точку
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    private volatile boolean seeded;
+    // URL в очереди + URL в обработке + незавершённое заполнение (+ ожидание кластера);
+    // ноль означает, что обход сайта завершён
+    private final AtomicInteger pending = new AtomicInteger(1);
+    // Общая очередь кластера (crawler-settings.cluster); null, если сайт обходит один узел
+    private volatile LeasedFrontier cluster;
+    private final AtomicBoolean clusterHoldReleased = new AtomicBoolean();
+    // Обход сайта прекращён извне, например остановлен на другом узле: статус сайта не пишется
+    @Getter
+    private volatile boolean cancelled;
+    private final AtomicLong linksExtracted = new AtomicLong();
+    private final AtomicLong linksFiltered = new AtomicLong();
+    private final AtomicLong linksEnqueued = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong nearDuplicates = new AtomicLong();
+    private final AtomicLong robotsBlocked = new AtomicLong();
+    private final AtomicLong rejectedContentType = new AtomicLong();
+    private final AtomicLong rejectedTooLarge = new AtomicLong();
+    private final AtomicLong sitemapUrls = new AtomicLong();
+    private final AtomicLong sitemapUnchanged = new AtomicLong();
+    private final AtomicLong depthLimited = new AtomicLong();
+    private final AtomicLong canonicalSkipped = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    public SiteCrawl(Site site, searchengine.config.Site settings) {
+        this(site, settings, CrawlMode.FULL);
+    }
+
+    public SiteCrawl(Site site, searchengine.config.Site settings, CrawlMode mode) {
+        this.site = site;
+        this.settings = settings;
+        this.rootUrl = settings.getUrl();
+        this.host = hostOf(rootUrl);
+        this.mode = mode;
+        this.maxDepth = settings.getMaxDepth() != null ? settings.getMaxDepth() : Integer.MAX_VALUE;
+        this.maxPages = settings.getMaxPages() != null ? settings.getMaxPages() : Long.MAX_VALUE;
+        this.maxDurationNanos = settings.getMaxDurationMinutes() != null
+                ? TimeUnit.MINUTES.toNanos(settings.getMaxDurationMinutes())
+                : Long.MAX_VALUE;
+        this.weight = settings.getWeight() != null ? Math.max(1, settings.getWeight()) : 1;
+        this.maxWorkers = settings.getMaxWorkers() != null ? Math.max(1, settings.getMaxWorkers()) : 0;
+    }
+
+    /**
+     * Занимает поток загрузки в пределах квоты max-workers.
+     *
+     * @return false, если квота сайта исчерпана
+     */
+    public boolean tryReserveWorker() {
+        if (maxWorkers <= 0) {
+            activeWorkers.incrementAndGet();
+            return true;
+        }
+        int current;
+        do {
+            current = activeWorkers.get();
+            if (current >= maxWorkers) {
+                return false;
+            }
+        } while (!activeWorkers.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void releaseWorker() {
+        activeWorkers.decrementAndGet();
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    public synchronized double getPass() {
+        return pass;
+    }
+
+    /**
+     * Сайт, подключившийся к уже идущему обходу, начинает с текущего времени остальных,
+     * а не с нуля — иначе он надолго забрал бы все потоки.
+     */
+    synchronized void startPassAt(double value) {
+        pass = Math.max(pass, value);
+    }
+
+    /**
+     * Учитывает взятую страницу: сайт с большим весом сдвигается медленнее и обслуживается чаще.
+     */
+    synchronized void charge() {
+        pass += 1.0 / weight;
+    }
+
+    /**
+     * Повторный обход без очистки БД с условными запросами.
+     */
+    public boolean isIncremental() {
+        return mode == CrawlMode.INCREMENTAL;
+    }
+
+    public boolean isResumed() {
+        return mode == CrawlMode.RESUME;
+    }
+
+    /**
+     * @return false, если URL уже в очереди или обход остановлен по лимиту
+     */
+    public boolean enqueue(String url, int depth) {
+        if (budgetNote != null || mode == CrawlMode.REPLAY) {
+            // При воспроизведении архива страницы берутся только из него, в сеть обход не ходит
+            return false;
+        }
+        LeasedFrontier shared = cluster;
+        if (shared != null) {
+            // Повторы отсеет уникальный ключ общей очереди
+            shared.publish(new FrontierEntry(url, depth));
+            return true;
+        }
+        pending.incrementAndGet();
+        if (!frontier.add(new FrontierEntry(url, depth))) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Откладывает повторную загрузку URL. Вызывается до {@link #complete(String)} для текущей
+     * попытки, поэтому обход сайта не завершится, пока повтор не выполнен.
+     *
+     * @return false, если обход остановлен по лимиту
+     */
+    public boolean scheduleRetry(FrontierEntry entry, long delayNanos) {
+        if (budgetNote != null) {
+            return false;
+        }
+        pending.incrementAndGet();
+        FrontierEntry retry = new FrontierEntry(entry.getUrl(), entry.getDepth(), entry.getAttempt() + 1);
+        synchronized (retries) {
+            retries.add(new RetryEntry(retry, System.nanoTime() + delayNanos));
+        }
+        retried.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Переводит обход на общую очередь кластера. Пока {@link #releaseClusterHold()} не подтвердит,
+     * что URL сайта не осталось ни на одном узле, обход не завершается, даже если очередь узла пуста.
+     */
+    void attachCluster(LeasedFrontier cluster) {
+        pending.incrementAndGet();
+        this.cluster = cluster;
+    }
+
+    LeasedFrontier getCluster() {
+        return cluster;
+    }
+
+    public boolean isClustered() {
+        return cluster != null;
+    }
+
+    /**
+     * @return true, если после этого не осталось незавершённых задач и обход нужно завершить сейчас
+     */
+    boolean releaseClusterHold() {
+        return clusterHoldReleased.compareAndSet(false, true) && complete();
+    }
+
+    /**
+     * Ставит в очередь узла URL, арендованный в общей очереди.
+     */
+    boolean acceptLeased(FrontierEntry entry) {
+        pending.incrementAndGet();
+        if (!frontier.add(entry)) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Страница из архива WARC передана на обработку, минуя очередь.
+     */
+    void beginReplayed() {
+        pending.incrementAndGet();
+        pagesTaken.incrementAndGet();
+    }
+
+    /**
+     * Прекращает обход сайта на этом узле: очередь очищается, а страницы, которые уже
+     * загружаются или ждут в конвейере, пропускают оставшиеся стадии и не записываются.
+     *
+     * @return true, если обход нужно завершить сейчас
+     */
+    public boolean cancel(String note) {
+        cancelled = true;
+        return stopForBudget(note);
+    }
+
+    Map<String, FrontierEntry> getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Ещё одна ссылка на URL, который уже посещён или ждёт в очереди:
+     * поднимает его в очереди среди URL той же глубины.
+     */
+    public void recordInlink(String url) {
+        frontier.addInlink(url);
+    }
+
+    /**
+     * @return описание исчерпанного лимита или null, если лимиты не достигнуты
+     */
+    public String checkBudget() {
+        if (pagesTaken.get() >= maxPages) {
+            return "обработано " + maxPages + " страниц";
+        }
+        if (System.nanoTime() - startedNanos >= maxDurationNanos) {
+            return "прошло " + TimeUnit.NANOSECONDS.toMinutes(maxDurationNanos) + " мин";
+        }
+        return null;
+    }
+
+    /**
+     * Останавливает обход по лимиту: очередь очищается, страницы в обработке дорабатываются.
+     * Повторный вызов снова очищает очередь — на случай URL, добавленных одновременно с остановкой.
+     *
+     * @return true, если после очистки не осталось незавершённых задач и обход нужно завершить сейчас
+     */
+    public boolean stopForBudget(String note) {
+        synchronized (this) {
+            if (budgetNote == null) {
+                budgetNote = note;
+            }
+        }
+        int removed = frontier.clear();
+        synchronized (retries) {
+            removed += retries.size();
+            retries.clear();
+        }
+        return removed > 0 && pending.addAndGet(-removed) == 0;
+    }
+
+    /**
+     * @return true только для первого вызвавшего: он и выполняет заполнение очереди,
+     * после чего вызывает {@link #complete()}
+     */
+    public boolean claimSeeding() {
+        return seedingClaimed.compareAndSet(false, true);
+    }
+
+    public boolean isSeedingClaimed() {
+        return seedingClaimed.get();
+    }
+
+    /**
+     * Проверка URL по правилам robots.txt (путь вместе с запросом).
+     */
+    public boolean isAllowed(String url) {
+        int schemeEnd = url.indexOf("://");
+        int pathStart = url.indexOf('/', schemeEnd < 0 ? 0 : schemeEnd + 3);
+        return robots.isAllowed(pathStart < 0 ? "/" : url.substring(pathStart));
+    }
+
+    /**
+     * Следующий URL: сначала повтор, время которого подошло, затем очередь обхода.
+     * Повторы не учитываются в лимите max-pages.
+     */
+    public FrontierEntry poll() {
+        FrontierEntry entry = pollDueRetry();
+        if (entry == null) {
+            entry = frontier.poll();
+            if (entry != null) {
+                pagesTaken.incrementAndGet();
+            }
+        }
+        if (entry != null) {
+            inFlight.put(entry.getUrl(), entry);
+        }
+        return entry;
+    }
+
+    private FrontierEntry pollDueRetry() {
+        synchronized (retries) {
+            RetryEntry retry = retries.peek();
+            if (retry == null || retry.dueNanos > System.nanoTime()) {
+                return null;
+            }
+            return retries.poll().entry;
+        }
+    }
+
+    /**
+     * Отмечает завершение обработки URL, взятого через {@link #poll()}.
+     *
+     * @return true, если это была последняя незавершённая задача сайта
+     */
+    public boolean complete(String url) {
+        inFlight.remove(url);
+        LeasedFrontier shared = cluster;
+        if (shared != null && !isRetrying(url)) {
+            shared.done(url);
+        }
+        return complete();
+    }
+
+    private boolean isRetrying(String url) {
+        synchronized (retries) {
+            for (RetryEntry retry : retries) {
+                if (retry.entry.getUrl().equals(url)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Копия очереди вместе с URL в обработке — для контрольной точки.
+     */
+    public List<FrontierEntry> snapshotFrontier() {
+        List<FrontierEntry> snapshot = new ArrayList<>(frontier.snapshot());
+        snapshot.addAll(inFlight.values());
+        synchronized (retries) {
+            for (RetryEntry retry : retries) {
+                snapshot.add(retry.entry);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Отмечает завершение обработки одного URL.
+     *
+     * @return true, если это была последняя незавершённая задача сайта
+     */
+    public boolean complete() {
+        return pending.decrementAndGet() == 0;
+    }
+
+    public void recordLinks(ExtractedLinks links, int enqueued) {
+        linksExtracted.addAndGet(links.getExtracted());
+        linksFiltered.addAndGet(links.getFiltered());
+        linksEnqueued.addAndGet(enqueued);
+    }
+
+    public long getLinksExtracted() {
+        return linksExtracted.get();
+    }
+
+    public long getLinksFiltered() {
+        return linksFiltered.get();
+    }
+
+    public long getLinksEnqueued() {
+        return linksEnqueued.get();
+    }
+
+    public void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public void recordUnchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    public void recordDuplicate() {
+        duplicates.incrementAndGet();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public void recordNearDuplicate() {
+        nearDuplicates.incrementAndGet();
+    }
+
+    public long getNearDuplicates() {
+        return nearDuplicates.get();
+    }
+
+    public void recordRejected(FetchRejection rejection) {
+        (rejection == FetchRejection.TOO_LARGE ? rejectedTooLarge : rejectedContentType).incrementAndGet();
+    }
+
+    public long getRejectedContentType() {
+        return rejectedContentType.get();
+    }
+
+    public long getRejectedTooLarge() {
+        return rejectedTooLarge.get();
+    }
+
+    public void recordDepthLimited() {
+        depthLimited.incrementAndGet();
+    }
+
+    public long getDepthLimited() {
+        return depthLimited.get();
+    }
+
+    /**
+     * Закрепляет текст за страницей, если он ещё ни за кем не закреплён; проверка и запись атомарны,
+     * так что из двух одновременно сохраняемых одинаковых страниц индексируется ровно одна.
+     *
+     * @return id страницы, за которой текст уже закреплён, или null, если он закреплён за pageId
+     */
+    public Integer claimContent(String contentHash, int pageId) {
+        Integer owner = contentOwners.putIfAbsent(contentHash, pageId);
+        return owner == null || owner == pageId ? null : owner;
+    }
+
+    /**
+     * Снимает закрепление текста, если он закреплён за этой страницей: её текст изменился
+     * или она не попала в индекс.
+     */
+    public void releaseContent(String contentHash, int pageId) {
+        if (contentHash != null) {
+            contentOwners.remove(contentHash, pageId);
+        }
+    }
+
+    void addCanonicalTarget(String url) {
+        canonicalTargets.add(url);
+    }
+
+    /**
+     * @return true, если URL попал в очередь как канонический адрес другой страницы
+     */
+    boolean takeCanonicalTarget(String url) {
+        return canonicalTargets.remove(url);
+    }
+
+    public void recordCanonicalSkipped() {
+        canonicalSkipped.incrementAndGet();
+    }
+
+    public long getCanonicalSkipped() {
+        return canonicalSkipped.get();
+    }
+
+    public long getPagesTaken() {
+        return pagesTaken.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public void recordRobotsBlocked() {
+        robotsBlocked.incrementAndGet();
+    }
+
+    public long getRobotsBlocked() {
+        return robotsBlocked.get();
+    }
+
+    public void recordSitemapUrl() {
+        sitemapUrls.incrementAndGet();
+    }
+
+    public long getSitemapUrls() {
+        return sitemapUrls.get();
+    }
+
+    public void recordSitemapUnchanged() {
+        sitemapUnchanged.incrementAndGet();
+    }
+
+    public long getSitemapUnchanged() {
+        return sitemapUnchanged.get();
+    }
+
+    /**
+     * @return true, если брать нечего: очередь пуста, а время отложенных повторов не подошло
+     */
+    public boolean isQueueEmpty() {
+        if (!frontier.isEmpty()) {
+            return false;
+        }
+        synchronized (retries) {
+            RetryEntry retry = retries.peek();
+            return retry == null || retry.dueNanos > System.nanoTime();
+        }
+    }
+
+    /**
+     * @return URL в очереди вместе с ожидающими повтора
+     */
+    public int getQueueSize() {
+        synchronized (retries) {
+            return frontier.size() + retries.size();
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = new URI(url).getHost();
+            return host != null ? host : url;
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    private static final class RetryEntry {
+        private final FrontierEntry entry;
+        private final long dueNanos;
+
+        private RetryEntry(FrontierEntry entry, long dueNanos) {
+            this.entry = entry;
+            this.dueNanos = dueNanos;
+        }
+    }
+}
@@ -1,146 +1,545 @@
 package searchengine.services.indexing;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import searchengine.model.*;
 import searchengine.repository.IndexRepository;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
-import searchengine.repository.SiteRepository;
 import searchengine.services.LemmatizationService;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Обработка страниц сайта: загрузка, разбор, лемматизация, сохранение и индексация,
+ * постановка найденных ссылок в очередь обхода {@link SiteCrawl}.
+ * Загрузку выполняют потоки {@link CrawlEngine}, остальные стадии — потоки {@link CrawlPipeline}.
+ */
 @Slf4j
-public class SiteMapBuilder extends RecursiveAction {
+public class SiteMapBuilder {
 
-    private String url;
-    private Site site;
-    private final SiteRepository siteRepository;
+    @Getter
+    private final SiteCrawl crawl;
+    private final Site site;
     private final PageRepository pageRepository;
     private final LemmatizationService lemmatizationService;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private static final Set<String> allLinks = new CopyOnWriteArraySet<>();
-    private static volatile boolean isIndexingStopped = false;
+    private final PageFetcher pageFetcher;
+    private final SiteStatusTracker statusTracker;
+    private final PageFailureHandler failureHandler;
+    private final LinkExtractor linkExtractor;
+    // Канонический адрес сайта без завершающего слэша: префикс, который отрезается для page.path
+    private final String siteRoot;
+    private final SitemapParser sitemapParser = new SitemapParser();
+    // Сохранённые страницы с кодом 200 без строк индекса (пропущенные как копии): при повторном
+    // обходе они не считаются неизменившимися, и проверка на копию выполняется заново
+    private final Set<Integer> unindexedPages = ConcurrentHashMap.newKeySet();
+    // На коротких текстах SimHash почти всегда совпадает, их сравниваем только по точному хэшу
+    private static final int MIN_WORDS_FOR_SIMHASH = 50;
+    private static final int RELINK_BATCH_SIZE = 100;
 
 
 
-    public SiteMapBuilder(String url, Site site,
-                          SiteRepository siteRepository,
+    public SiteMapBuilder(SiteCrawl crawl,
                           PageRepository pageRepository,
                           LemmatizationService lemmatizationService,
                           LemmaRepository lemmaRepository,
-                          IndexRepository indexRepository) {
-        this.url = url;
-        this.site = site;
-        this.siteRepository = siteRepository;
+                          IndexRepository indexRepository,
+                          PageFetcher pageFetcher,
+                          UrlCanonicalizer canonicalizer,
+                          SiteStatusTracker statusTracker,
+                          PageFailureHandler failureHandler) {
+        this.crawl = crawl;
+        this.site = crawl.getSite();
         this.pageRepository = pageRepository;
         this.lemmatizationService = lemmatizationService;
         this.lemmaRepository = lemmaRepository;
         this.indexRepository = indexRepository;
+        this.pageFetcher = pageFetcher;
+        this.statusTracker = statusTracker;
+        this.failureHandler = failureHandler;
+        this.linkExtractor = new LinkExtractor(canonicalizer, crawl.getRootUrl());
+        String root = canonicalizer.canonicalize(site.getUrl());
+        this.siteRoot = trimTrailingSlash(root != null ? root : site.getUrl());
     }
 
+    /**
+     * Заполняет очередь: корневая страница, адреса из карт сайта, а при повторном обходе —
+     * ещё и все уже сохранённые страницы, чтобы проверить их условными запросами.
+     * При повторном обходе страницы, у которых lastmod в карте сайта не позже
+     * времени последней загрузки, не запрашиваются.
+     * При продолжении прерванного обхода очередь восстанавливается из контрольной точки,
+     * а сохранённые страницы считаются посещёнными.
+     *
+     * @param sitemaps        адреса карт сайта или индексов карт
+     * @param limits     сколько файлов карт, байт и адресов в одном файле читать не больше
+     * @param checkpoint контрольная точка для продолжения обхода или null
+     * @param awaitTurn  ждёт разрешения на запрос к хосту карты (частота запросов к хосту)
+     */
+    public void seed(List<String> sitemaps, SitemapLimits limits, CrawlCheckpoint checkpoint,
+                     Consumer<String> awaitTurn) {
+        Map<String, KnownPage> knownPages = Collections.emptyMap();
+        if (crawl.isIncremental() || crawl.isResumed()) {
+            for (Object[] row : pageRepository.findIndexedContentHashesBySite(site)) {
+                crawl.claimContent((String) row[1], (Integer) row[0]);
+            }
+            unindexedPages.addAll(pageRepository.findUnindexedPageIdsBySite(site));
+            SimHashIndex nearDuplicateIndex = crawl.getNearDuplicateIndex();
+            if (nearDuplicateIndex != null) {
+                for (Object[] row : pageRepository.findSimHashesBySite(site)) {
+                    nearDuplicateIndex.add((Long) row[1], (Integer) row[0]);
+                }
+            }
+            knownPages = new HashMap<>();
+            for (Object[] row : pageRepository.findKnownPagesBySite(site)) {
+                knownPages.put((String) row[0], new KnownPage((LocalDateTime) row[1], (Integer) row[2]));
+            }
+        }
+        if (crawl.isResumed()) {
+            resume(knownPages, checkpoint);
+        }
 
-    @Override
-    protected void compute() {
-        if (isIndexingStopped) {
-            return;
+        String root = linkExtractor.normalize(crawl.getRootUrl());
+        scheduleUrl(root != null ? root : crawl.getRootUrl(), 0);
+
+        seedFromSitemaps(sitemaps, limits, knownPages, awaitTurn);
+
+        if (crawl.isIncremental()) {
+            for (Map.Entry<String, KnownPage> known : knownPages.entrySet()) {
+                String pageUrl = linkExtractor.normalize(siteRoot + known.getKey());
+                if (pageUrl != null) {
+                    scheduleUrl(pageUrl, known.getValue().depth);
+                }
+            }
         }
-        try {
-            Thread.sleep(200);
+    }
 
-            String normalizedUrl = trimTrailingSlash(url);
-            String normalizedSiteUrl = trimTrailingSlash(site.getUrl());
-            String path = normalizedUrl.replaceFirst("^" + java.util.regex.Pattern.quote(normalizedSiteUrl), "");
-            if (path.isEmpty()) {
-                path = "/";
+    /**
+     * Восстанавливает прерванный обход: сохранённые страницы отмечаются посещёнными,
+     * очередь и посещённые URL берутся из контрольной точки. Ссылки со страниц,
+     * сохранённых после точки (или со всех страниц, если точки нет), извлекаются
+     * из сохранённого HTML без повторной загрузки.
+     */
+    private void resume(Map<String, KnownPage> knownPages, CrawlCheckpoint checkpoint) {
+        for (String path : knownPages.keySet()) {
+            String pageUrl = linkExtractor.normalize(siteRoot + path);
+            if (pageUrl != null) {
+                crawl.getVisited().add(linkExtractor.keyOf(pageUrl));
             }
+        }
 
-            // Канонический ключ для дедупликации: siteUrl + path
-            String canonicalKey = normalizedSiteUrl + path;
-            if (!allLinks.add(canonicalKey)) {
-                return;
+        LocalDateTime since = LocalDateTime.of(1970, 1, 1, 0, 0);
+        int restored = 0;
+        if (checkpoint != null) {
+            for (long fingerprint : checkpoint.getVisited()) {
+                crawl.getVisited().addFingerprint(fingerprint);
             }
+            for (FrontierEntry entry : checkpoint.getFrontier()) {
+                // URL из точки уже отмечены посещёнными; сохранённые с тех пор страницы не загружаем
+                if (!knownPages.containsKey(pathOf(entry.getUrl())) && crawl.enqueue(entry.getUrl(), entry.getDepth())) {
+                    restored++;
+                }
+            }
+            since = checkpoint.getCreatedAt();
+        }
 
-            Connection.Response response = Jsoup.connect(url)
-                    .userAgent("HeliontSearchBot")
-                    .timeout(10000)
-                    .execute();
+        int relinked = 0;
+        int afterId = 0;
+        List<Page> batch;
+        do {
+            batch = pageRepository.findLinkSources(site, since, afterId, PageRequest.of(0, RELINK_BATCH_SIZE));
+            for (Page page : batch) {
+                Document document = Jsoup.parse(page.getContent(), siteRoot + page.getPath());
+                int depth = page.getDepth() != null ? page.getDepth() + 1 : 1;
+                for (String link : linkExtractor.extract(document).getUrls()) {
+                    scheduleUrl(link, depth);
+                }
+                afterId = page.getId();
+                relinked++;
+            }
+        } while (batch.size() == RELINK_BATCH_SIZE && !crawl.isCancelled());
 
-            Document document = response.parse();
-            String content = document.html();
+        log.info("Продолжение обхода {}: сохранено страниц {}, из контрольной точки {} URL ({}), разобрано заново {} страниц",
+                site.getUrl(), knownPages.size(), restored,
+                checkpoint != null ? checkpoint.getCreatedAt() : "точки нет", relinked);
+    }
 
-            // Сохраняем или читаем существующую страницу (защита от гонок)
-            Page page = pageRepository.findBySiteAndPath(site, path);
-            if (page == null) {
-                page = new Page();
-                page.setSite(site);
-                page.setPath(path);
-            }
-            page.setCode(response.statusCode());
-            page.setContent(content);
+    /**
+     * Читает карты сайта по одной; вложенные карты из sitemapindex ставятся в очередь разбора.
+     * Адреса из карт получают глубину 1, как ссылки с главной. Из одного файла берётся
+     * не больше limits.maxUrls адресов; чтение прекращается, когда исчерпан лимит обхода.
+     */
+    private void seedFromSitemaps(List<String> sitemaps, SitemapLimits limits, Map<String, KnownPage> knownPages,
+                                  Consumer<String> awaitTurn) {
+        Queue<String> queue = new ArrayDeque<>(sitemaps);
+        Set<String> seen = new HashSet<>(sitemaps);
+        int files = 0;
+        while (!queue.isEmpty() && files < limits.getMaxFiles() && !isSeedingStopped()) {
+            String sitemapUrl = queue.poll();
+            files++;
+            AtomicInteger urls = new AtomicInteger();
             try {
-                page = pageRepository.save(page);
-            } catch (DataIntegrityViolationException ex) {
-                // Страница уже создана параллельно – перечитаем
-                page = pageRepository.findBySiteAndPath(site, path);
-            }
-
-            // Обновляем время последней активности
-            site.setStatusTime(LocalDateTime.now());
-            siteRepository.save(site);
-
-            // Ищем ссылки и индексируем только успешные страницы
-            if (response.statusCode() == 200) {
-                indexPageContent(page, content);
-
-                Set<SiteMapBuilder> taskList = new HashSet<>();
-                Elements links = document.select("a[href]");
-
-                for (Element link : links) {
-                    String childUrl = link.absUrl("href");
-                    if (isValidUrl(childUrl, site.getUrl())) {
-                        SiteMapBuilder task = new SiteMapBuilder(
-                                childUrl,
-                                site,
-                                siteRepository,
-                                pageRepository,
-                                lemmatizationService,
-                                lemmaRepository,
-                                indexRepository
-                        );
-                        task.fork();
-                        taskList.add(task);
-                    }
+                awaitTurn.accept(URI.create(sitemapUrl).getHost());
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
                 }
+                byte[] body = pageFetcher.fetchSitemap(sitemapUrl, limits.getMaxBytes());
+                sitemapParser.parse(new ByteArrayInputStream(body),
+                        entry -> {
+                            seedSitemapUrl(entry, knownPages);
+                            return urls.incrementAndGet() < limits.getMaxUrls() && !isSeedingStopped();
+                        },
+                        nested -> {
+                            if (seen.add(nested)) {
+                                queue.add(nested);
+                            }
+                        });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | XMLStreamException | IllegalArgumentException e) {
+                log.debug("Карта сайта {} не прочитана: {}", sitemapUrl, e.getMessage());
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.info("{}: прочитано {} карт сайта, остальные {} пропущены по лимиту", site.getUrl(), files, queue.size());
+        }
+    }
 
-                for (SiteMapBuilder task : taskList) {
-                    task.join();
+    /**
+     * @return true, если обход отменён или исчерпан его лимит и карты дальше читать незачем
+     */
+    private boolean isSeedingStopped() {
+        return crawl.isCancelled() || crawl.getBudgetNote() != null || crawl.checkBudget() != null;
+    }
+
+    private void seedSitemapUrl(SitemapUrl entry, Map<String, KnownPage> knownPages) {
+        String url = linkExtractor.normalize(entry.getLoc());
+        if (url == null) {
+            return;
+        }
+        KnownPage known = knownPages.get(pathOf(url));
+        LocalDateTime lastModified = entry.getLastModified();
+        if (known != null && known.fetchTime != null && lastModified != null && !lastModified.isAfter(known.fetchTime)) {
+            // Не менялась с прошлой загрузки: отмечаем посещённой, чтобы не запрашивать
+            if (crawl.getVisited().add(linkExtractor.keyOf(url))) {
+                crawl.recordSitemapUnchanged();
+            }
+            return;
+        }
+        if (scheduleUrl(url, 1)) {
+            crawl.recordSitemapUrl();
+        }
+    }
+
+    /**
+     * Ставит URL в очередь, если его ещё не было, он не глубже max-depth
+     * и robots.txt его не запрещает. Повторная ссылка на URL поднимает его в очереди.
+     *
+     * @return true, если URL поставлен в очередь
+     */
+    private boolean scheduleUrl(String url, int depth) {
+        if (depth > crawl.getMaxDepth()) {
+            // В посещённые не добавляем: URL ещё может найтись по более короткому пути
+            crawl.recordDepthLimited();
+            return false;
+        }
+        if (!crawl.getVisited().add(linkExtractor.keyOf(url))) {
+            crawl.recordInlink(url);
+            return false;
+        }
+        if (!crawl.isAllowed(url)) {
+            crawl.recordRobotsBlocked();
+            return false;
+        }
+        return crawl.enqueue(url, depth);
+    }
+
+    /**
+     * Вызывается движком, когда очередь сайта исчерпана.
+     */
+    public void finish() {
+        if (crawl.isIncremental()) {
+            // Леммы, которые остались без страниц после переиндексации изменившихся страниц
+            lemmaRepository.deleteUnusedBySite(site);
+        }
+    }
+
+
+    /**
+     * Стадия загрузки, выполняется потоком {@link CrawlEngine}.
+     * Ответы 304, отклонённые по заголовкам и ошибки обрабатываются здесь же;
+     * временные сбои откладываются на повтор через {@link PageFailureHandler}.
+     *
+     * @return страница для следующих стадий {@link CrawlPipeline} или null, если она уже обработана
+     */
+    public PageTask fetchPage(FrontierEntry entry) {
+        if (crawl.isCancelled()) {
+            return null;
+        }
+        String url = entry.getUrl();
+        try {
+            PageTask task = new PageTask(url, entry.getDepth());
+            task.attempt = entry.getAttempt();
+            task.canonicalTarget = crawl.takeCanonicalTarget(url);
+            task.path = pathOf(url);
+            if (crawl.isIncremental()) {
+                // Валидаторы сохранённой страницы нужны для условного запроса
+                task.page = pageRepository.findBySiteAndPath(site, task.path);
+                task.pageLoaded = true;
+            }
+
+            Page page = task.page;
+            FetchResult response = page != null
+                    ? pageFetcher.fetch(url, page.getEtag(), page.getLastModified())
+                    : pageFetcher.fetch(url);
+            if (response.isNotModified() && page != null) {
+                // Страница не изменилась: без разбора, лемматизации и записи индекса
+                pageRepository.updateFetchTime(page.getId(), LocalDateTime.now());
+                crawl.recordNotModified();
+                return null;
+            }
+            // Адрес после перенаправлений тоже считается посещённым
+            String finalUrl = linkExtractor.normalize(response.getUrl());
+            if (finalUrl != null && !finalUrl.equals(url)) {
+                crawl.getVisited().add(linkExtractor.keyOf(finalUrl));
+            }
+            if (PageFailureHandler.isTransient(response.getStatusCode())) {
+                String reason = "HTTP " + response.getStatusCode();
+                if (failureHandler.retry(crawl, entry, reason)) {
+                    return null;
                 }
+                // Попытки исчерпаны: страница сохраняется с кодом ответа, сбой учитывается
+                failureHandler.recordFailure(site, url, task.path, "fetch",
+                        entry.getAttempt() + 1, response.getStatusCode(), reason);
+            }
+            if (response.isRejected()) {
+                // Тело не загружалось; URL уже в множестве посещённых и больше не запрашивается
+                log.debug("Пропущен {} ({}, тип {})", url, response.getRejection(), response.getContentType());
+                crawl.recordRejected(response.getRejection());
+                return null;
+            }
+            task.response = response;
+            task.statusCode = response.getStatusCode();
+            task.etag = response.getEtag();
+            task.lastModified = response.getLastModified();
+            return task;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Сетевые ошибки и таймауты обычно временные: страница загружается повторно
+            String reason = PageFailureHandler.describe(e);
+            if (!failureHandler.retry(crawl, entry, reason)) {
+                failureHandler.recordFailure(site, url, pathOf(url), "fetch", entry.getAttempt() + 1, null, reason);
             }
         } catch (Exception e) {
-            handleError(e);
+            failureHandler.recordFailure(site, url, pathOf(url), "fetch",
+                    entry.getAttempt() + 1, null, PageFailureHandler.describe(e));
         }
+        return null;
     }
 
-    private void indexPageContent(Page page, String content) {
+    /**
+     * Страница из архива WARC вместо загрузки: дальше она проходит те же стадии, что и загруженная.
+     *
+     * @return страница для {@link CrawlPipeline} или null, если адрес чужой или уже воспроизведён
+     * из более свежей записи
+     */
+    public PageTask replayPage(WarcRecord record) {
+        if (crawl.isCancelled() || record.getTargetUri() == null) {
+            return null;
+        }
+        String url = linkExtractor.normalize(record.getTargetUri());
+        if (url == null || !crawl.getVisited().add(linkExtractor.keyOf(url))) {
+            return null;
+        }
+        FetchResult response = record.toFetchResult();
+        if (response == null) {
+            return null;
+        }
+        PageTask task = new PageTask(url, record.getDepth());
+        task.path = pathOf(url);
+        task.response = response;
+        task.statusCode = response.getStatusCode();
+        task.etag = response.getEtag();
+        task.lastModified = response.getLastModified();
+        return task;
+    }
+
+    /**
+     * Стадия разбора: текст и отпечатки страницы, постановка ссылок в очередь.
+     * Неизменившийся текст и почти совпадающий с уже проиндексированным отмечаются здесь,
+     * чтобы не лемматизировать их.
+     *
+     * @return false, если страницу дальше обрабатывать не нужно
+     */
+    public boolean parsePage(PageTask task) {
+        if (crawl.isCancelled()) {
+            return false;
+        }
+        try {
+            Document document = task.response.parse();
+            // Тело ответа больше не нужно
+            task.response = null;
+            boolean success = task.statusCode == 200;
+            // Ищем ссылки только на успешных страницах
+            ExtractedLinks links = success ? linkExtractor.extract(document) : null;
+            if (success && !task.canonicalTarget && followCanonical(task.url, task.depth, document)) {
+                // Страница объявила основным другой адрес: сохраняется и индексируется только он
+                document = null;
+                scheduleLinks(task.url, task.depth + 1, links);
+                return false;
+            }
+            task.content = document.html();
+            // Из DOM взято всё нужное: дальше по конвейеру идут только строки,
+            // и дерево разбора не держится в памяти, пока ссылки ставятся в очередь
+            document = null;
+            task.cleanContent = lemmatizationService.cleanHtmlContent(task.content);
+            task.contentHash = ContentHash.of(task.cleanContent);
+            String[] words = SimHash.words(task.cleanContent);
+            task.simHash = words.length >= MIN_WORDS_FOR_SIMHASH ? SimHash.of(words) : null;
+            task.unchanged = isUnchanged(task.page, task);
+
+            if (success) {
+                scheduleLinks(task.url, task.depth + 1, links);
+                task.nearDuplicate = !task.unchanged && hasSimilarPage(task.page, task.simHash);
+            }
+            return true;
+        } catch (Exception e) {
+            handleError(task, "parse", e);
+            return false;
+        }
+    }
+
+    /**
+     * Стадия лемматизации: только процессор, без обращений к БД.
+     */
+    public void lemmatizePage(PageTask task) {
+        if (crawl.isCancelled()) {
+            return;
+        }
+        task.lemmas = lemmatizationService.getLemmas(task.cleanContent);
+        // Очищенный текст нужен только для лемм; пока страница ждёт записи, он не хранится
+        task.cleanContent = null;
+    }
+
+    /**
+     * Стадия записи: страница, леммы и индекс сохраняются в БД.
+     */
+    public void persistPage(PageTask task) {
+        if (crawl.isCancelled()) {
+            return;
+        }
         try {
-            String cleanContent = lemmatizationService.cleanHtmlContent(content);
-            Map<String, Integer> lemmas = lemmatizationService.getLemmas(cleanContent);
+            Page page = task.pageLoaded ? task.page : pageRepository.findBySiteAndPath(site, task.path);
+            boolean unchanged = isUnchanged(page, task);
+            if (unchanged) {
+                // Текст не изменился: обновляем только служебные поля, индекс не трогаем
+                pageRepository.updateFetchStatus(page.getId(), task.statusCode,
+                        task.etag, task.lastModified, LocalDateTime.now());
+                crawl.recordUnchanged();
+            } else {
+                if (page == null) {
+                    page = new Page();
+                    page.setSite(site);
+                    page.setPath(task.path);
+                } else {
+                    removePageIndex(page);
+                    crawl.releaseContent(page.getContentHash(), page.getId());
+                    forgetSimHash(page);
+                }
+                page.setCode(task.statusCode);
+                page.setContent(task.content);
+                page.setEtag(task.etag);
+                page.setLastModified(task.lastModified);
+                page.setFetchTime(LocalDateTime.now());
+                page.setContentHash(task.contentHash);
+                page.setSimhash(task.simHash);
+                page.setDepth(task.depth);
+                try {
+                    page = pageRepository.save(page);
+                } catch (DataIntegrityViolationException ex) {
+                    // Страница уже создана параллельно – перечитаем
+                    page = pageRepository.findBySiteAndPath(site, task.path);
+                }
+            }
+
+            // Время последней активности пишется в БД не чаще status-flush-interval-ms
+            statusTracker.recordPage(site);
+
+            // Индексируем только успешные страницы
+            if (task.statusCode == 200 && !unchanged) {
+                if (crawl.claimContent(task.contentHash, page.getId()) != null) {
+                    // Тот же текст уже закреплён за другой страницей
+                    log.debug("Страница {} совпадает по содержимому с уже проиндексированной", task.url);
+                    crawl.recordDuplicate();
+                } else if (task.nearDuplicate || isNearDuplicate(page, task.simHash)) {
+                    // Текст не индексируется: его точные копии сверяются с той же похожей страницей
+                    crawl.releaseContent(task.contentHash, page.getId());
+                    log.debug("Страница {} почти совпадает с уже проиндексированной", task.url);
+                    crawl.recordNearDuplicate();
+                } else {
+                    indexPageContent(page, task.lemmas != null
+                            ? task.lemmas
+                            : lemmatizationService.getLemmas(task.cleanContent));
+                }
+            }
+        } catch (Exception e) {
+            handleError(task, "persist", e);
+        }
+    }
+
+    private boolean isUnchanged(Page page, PageTask task) {
+        return page != null
+                && task.contentHash.equals(page.getContentHash())
+                && page.getCode() == task.statusCode
+                && !unindexedPages.contains(page.getId());
+    }
+
+    /**
+     * Учитывает &lt;link rel="canonical"&gt;: если страница указывает на другой адрес того же сайта,
+     * этот адрес ставится в очередь (если его ещё не было среди посещённых), а сама страница не сохраняется.
+     *
+     * @return true, если страницу не нужно сохранять
+     */
+    private boolean followCanonical(String url, int depth, Document document) {
+        String canonical = linkExtractor.canonicalOf(document);
+        // Адрес, закрытый robots.txt, не загрузить: тогда сохраняем саму страницу
+        if (canonical == null || linkExtractor.keyOf(canonical).equals(linkExtractor.keyOf(url))
+                || !crawl.isAllowed(canonical)) {
+            return false;
+        }
+        crawl.recordCanonicalSkipped();
+        if (crawl.getVisited().add(linkExtractor.keyOf(canonical))) {
+            crawl.addCanonicalTarget(canonical);
+            crawl.enqueue(canonical, depth);
+        }
+        return true;
+    }
 
+    private void indexPageContent(Page page, Map<String, Integer> lemmas) {
+        try {
             for (Map.Entry<String, Integer> entry : lemmas.entrySet()) {
                 String lemmaWord = entry.getKey();
                 Integer count = entry.getValue();
@@ -185,41 +584,89 @@ private void indexPageContent(Page page, String content) {
         }
     }
 
-    private boolean isValidUrl(String candidateUrl, String siteUrl) {
-        try {
-            URI c = new URI(candidateUrl);
-            URI s = new URI(siteUrl);
-            if (c.getHost() == null || s.getHost() == null) return false;
-            boolean sameHost = c.getHost().equalsIgnoreCase(s.getHost());
-            if (!sameHost) return false;
-            String path = c.getPath() == null ? "/" : c.getPath();
-            // фильтр якорей и бинарных ресурсов
-            return (c.getFragment() == null)
-                    && !path.matches(".*(\\.(jpg|jpeg|png|gif|bmp|pdf|doc|docx|xls|xlsx|ppt|pptx|mp3|mp4|avi|mov|wmv|zip|rar))$")
-                    && candidateUrl.length() < 2048;
-        } catch (Exception e) {
+    /**
+     * Предварительная проверка до лемматизации; окончательная — {@link #isNearDuplicate(Page, Long)}
+     * после сохранения, когда у страницы есть id.
+     */
+    private boolean hasSimilarPage(Page page, Long simHash) {
+        SimHashIndex index = crawl.getNearDuplicateIndex();
+        // Прежний отпечаток самой страницы (при повторном обходе) не в счёт
+        int pageId = page != null ? page.getId() : 0;
+        return index != null && simHash != null && index.find(simHash, pageId) != null;
+    }
+
+    private boolean isNearDuplicate(Page page, Long simHash) {
+        SimHashIndex index = crawl.getNearDuplicateIndex();
+        if (index == null || simHash == null) {
             return false;
         }
+        return index.findOrAdd(simHash, page.getId()) != null;
     }
 
-    private String trimTrailingSlash(String value) {
-        if (value == null) return null;
-        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    /**
+     * Прежний отпечаток изменившейся страницы больше не описывает проиндексированный текст.
+     */
+    private void forgetSimHash(Page page) {
+        SimHashIndex index = crawl.getNearDuplicateIndex();
+        if (index != null && page.getSimhash() != null) {
+            index.remove(page.getSimhash(), page.getId());
+        }
+    }
+
+    /**
+     * Убирает из индекса прежнее содержимое страницы перед переиндексацией.
+     */
+    private void removePageIndex(Page page) {
+        lemmaRepository.decrementFrequencyByPage(page);
+        indexRepository.deleteByPage(page);
     }
 
-    private void handleError(Exception e) {
-        site.setStatus(Status.FAILED);
-        site.setLastError(e.getMessage());
-        site.setStatusTime(LocalDateTime.now());
-        siteRepository.save(site);
+    /**
+     * Ставит в очередь только ссылки, которых ещё нет в множестве посещённых,
+     * так что повторы не порождают лишних задач.
+     */
+    private void scheduleLinks(String url, int depth, ExtractedLinks links) {
+        int enqueued = 0;
+        for (String link : links.getUrls()) {
+            if (scheduleUrl(link, depth)) {
+                enqueued++;
+            }
+        }
+        crawl.recordLinks(links, enqueued);
+        log.debug("{}: ссылок найдено {}, отфильтровано {}, поставлено в очередь {}",
+                url, links.getExtracted(), links.getFiltered(), enqueued);
     }
 
-    public static void stopIndexing() {
-        isIndexingStopped = true;
+    /**
+     * Уже сохранённая страница: время последней загрузки и глубина
+     * (у страниц, сохранённых до появления глубины в БД, считается 1).
+     */
+    private static final class KnownPage {
+        private final LocalDateTime fetchTime;
+        private final int depth;
+
+        private KnownPage(LocalDateTime fetchTime, Integer depth) {
+            this.fetchTime = fetchTime;
+            this.depth = depth != null ? depth : 1;
+        }
+    }
+
+    /**
+     * Путь страницы для page.path; url уже канонический, путь берётся из ключа страницы.
+     */
+    private String pathOf(String url) {
+        String normalizedUrl = trimTrailingSlash(linkExtractor.keyOf(url));
+        String path = normalizedUrl.startsWith(siteRoot) ? normalizedUrl.substring(siteRoot.length()) : normalizedUrl;
+        return path.isEmpty() ? "/" : path;
+    }
+
+    private String trimTrailingSlash(String value) {
+        if (value == null) return null;
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
     }
 
-    public static void resetIndexing() {
-        isIndexingStopped = false;
-        allLinks.clear();
+    private void handleError(PageTask task, String stage, Exception e) {
+        failureHandler.recordFailure(site, task.url, task.path, stage, task.attempt + 1,
+                task.statusCode > 0 ? task.statusCode : null, PageFailureHandler.describe(e));
     }
 }
@@ -0,0 +1,37 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Ход обхода одного сайта для статистики.
+ */
+@Getter
+public class SiteProgressSnapshot {
+    private final long pages;
+    private final long errors;
+    // Отложенные повторные загрузки после временных сбоев
+    private final long retries;
+    // За последний интервал записи статуса
+    private final double pagesPerSecond;
+    // С начала обхода
+    private final double averagePagesPerSecond;
+    // URL в очереди сайта и страницы, которые загружаются или проходят стадии конвейера
+    private final int queued;
+    private final int inProgress;
+    private final int weight;
+    // Доля загрузок сайта за последний интервал среди всех обходимых сайтов
+    private final double share;
+
+    public SiteProgressSnapshot(long pages, long errors, long retries, double pagesPerSecond, double averagePagesPerSecond,
+                                int queued, int inProgress, int weight, double share) {
+        this.pages = pages;
+        this.errors = errors;
+        this.retries = retries;
+        this.pagesPerSecond = pagesPerSecond;
+        this.averagePagesPerSecond = averagePagesPerSecond;
+        this.queued = queued;
+        this.inProgress = inProgress;
+        this.weight = weight;
+        this.share = share;
+    }
+}
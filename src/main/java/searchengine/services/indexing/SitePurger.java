@@ -0,0 +1,147 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Generation;
+import searchengine.model.Site;
+import searchengine.repository.FrontierRepository;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageErrorRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Удаление данных сайта без загрузки сущностей. Каждая таблица чистится нативными
+ * DELETE ... LIMIT порциями по crawler-settings.purge-chunk-size строк, каждая порция — в своей
+ * транзакции: память не зависит от размера сайта, блокировки держатся недолго, а каскады
+ * {@code @OneToMany} сущностей Site, Page и Lemma не срабатывают. TRUNCATE не используется:
+ * он не транзакционный и стёр бы строки обхода, начатого параллельно с очисткой.
+ * Ход удаления пишется в лог и отдаётся в статистику.
+ */
+@Slf4j
+@Component
+public class SitePurger {
+
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final CrawlerSettings crawlerSettings;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final PageErrorRepository pageErrorRepository;
+    private final FrontierRepository frontierRepository;
+    // Удаление идёт в одном потоке очистки, поэтому достаточно одного счётчика
+    private volatile Counters current;
+
+    public SitePurger(CrawlerSettings crawlerSettings,
+                      SiteRepository siteRepository,
+                      PageRepository pageRepository,
+                      LemmaRepository lemmaRepository,
+                      IndexRepository indexRepository,
+                      PageErrorRepository pageErrorRepository,
+                      FrontierRepository frontierRepository) {
+        this.crawlerSettings = crawlerSettings;
+        this.siteRepository = siteRepository;
+        this.pageRepository = pageRepository;
+        this.lemmaRepository = lemmaRepository;
+        this.indexRepository = indexRepository;
+        this.pageErrorRepository = pageErrorRepository;
+        this.frontierRepository = frontierRepository;
+    }
+
+    /**
+     * Удаляет индекс, ошибки, очередь, страницы и леммы сайта, затем строку сайта,
+     * если она выведена из поиска (RETIRED). Прерванное удаление можно повторить.
+     */
+    public void purge(Site site) {
+        int siteId = site.getId();
+        int limit = Math.max(1, crawlerSettings.getPurgeChunkSize());
+        Counters counters = new Counters(site.getUrl());
+        current = counters;
+        try {
+            // Сначала строки, которые ссылаются на страницы и леммы
+            drain(counters, "index", chunk -> indexRepository.deleteChunkBySite(siteId, chunk), limit);
+            drain(counters, "page_error", chunk -> pageErrorRepository.deleteChunkBySite(siteId, chunk), limit);
+            drain(counters, "frontier", chunk -> frontierRepository.deleteChunkBySite(siteId, chunk), limit);
+            drain(counters, "page", chunk -> pageRepository.deleteChunkBySite(siteId, chunk), limit);
+            drain(counters, "lemma", chunk -> lemmaRepository.deleteChunkBySite(siteId, chunk), limit);
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Удаление индекса {} (строка {}) прервано, удалено строк {}",
+                        site.getUrl(), siteId, counters.deleted.get());
+                return;
+            }
+            siteRepository.deleteRetired(siteId);
+            PurgeProgress result = counters.snapshot();
+            log.info("Прежний индекс {} (строка {}) удалён: строк {}, {} строк/с",
+                    site.getUrl(), siteId, result.getDeleted(), String.format("%.0f", result.getRowsPerSecond()));
+        } finally {
+            current = null;
+        }
+    }
+
+    /**
+     * Удаляет все выведенные из поиска сайты порциями, как {@link #purge(Site)}.
+     */
+    public void purgeRetired() {
+        for (Site site : siteRepository.findByGeneration(Generation.RETIRED)) {
+            purge(site);
+        }
+    }
+
+    /**
+     * @return ход текущего удаления или null, если ничего не удаляется
+     */
+    public PurgeProgress progress() {
+        Counters counters = current;
+        return counters != null ? counters.snapshot() : null;
+    }
+
+    private static void drain(Counters counters, String table, IntUnaryOperator deleteChunk, int limit) {
+        counters.table = table;
+        int deleted;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            deleted = deleteChunk.applyAsInt(limit);
+            counters.deleted.addAndGet(deleted);
+            counters.logIfDue();
+        } while (deleted >= limit);
+    }
+
+    /**
+     * Счётчики удаления сайта: пишет поток очистки, читает статистика.
+     */
+    private static final class Counters {
+        private final String url;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile String table;
+        private long loggedNanos = startedNanos;
+
+        private Counters(String url) {
+            this.url = url;
+        }
+
+        private void logIfDue() {
+            long now = System.nanoTime();
+            if (now - loggedNanos >= LOG_INTERVAL_NANOS) {
+                loggedNanos = now;
+                log.info("Удаление прежнего индекса {}: таблица {}, удалено строк {}", url, table, deleted.get());
+            }
+        }
+
+        private PurgeProgress snapshot() {
+            long done = deleted.get();
+            double seconds = Math.max(System.nanoTime() - startedNanos, 1) / 1e9;
+            return new PurgeProgress(url, table, done, done / seconds);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Статус сайтов во время обхода. Время последней активности и последняя ошибка
+ * копятся в памяти и пишутся в таблицу site одним UPDATE раз в
+ * crawler-settings.status-flush-interval-ms, а не после каждой страницы из каждого потока.
+ * Статус (INDEXED или FAILED) выставляется и записывается сразу по завершении обхода: пока обход
+ * идёт, сайт остаётся в INDEXING. FAILED он получает, только если доля страниц с ошибками
+ * достигла crawler-settings.site-failure-error-rate.
+ * Попутно считаются скорость обхода, число ошибок, очередь сайта и его доля
+ * загрузок среди всех обходимых сайтов — для статистики.
+ */
+@Slf4j
+@Component
+public class SiteStatusTracker {
+
+    private final CrawlerSettings crawlerSettings;
+    private final SiteRepository siteRepository;
+    private final Map<Integer, SiteProgress> sites = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public SiteStatusTracker(CrawlerSettings crawlerSettings, SiteRepository siteRepository) {
+        this.crawlerSettings = crawlerSettings;
+        this.siteRepository = siteRepository;
+    }
+
+    /**
+     * Начинает учёт сайта; счётчики предыдущего обхода сбрасываются.
+     */
+    public synchronized void track(SiteCrawl crawl) {
+        sites.put(crawl.getSite().getId(), new SiteProgress(crawl));
+        if (flusher == null) {
+            long interval = Math.max(100, crawlerSettings.getStatusFlushIntervalMs());
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "site-status");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Страница обработана: обновляет время активности в памяти.
+     */
+    public void recordPage(Site site) {
+        SiteProgress progress = sites.get(site.getId());
+        if (progress != null) {
+            progress.recordPage();
+        }
+    }
+
+    /**
+     * Страница окончательно не обработана. Ошибка обновляет last_error при очередной записи;
+     * статус сайта не меняется до {@link #complete(Site, String)}.
+     */
+    public void recordError(Site site, String message) {
+        SiteProgress progress = sites.get(site.getId());
+        if (progress == null) {
+            return;
+        }
+        synchronized (progress) {
+            progress.errors++;
+            site.setLastError(message);
+            site.setStatusTime(LocalDateTime.now());
+            progress.dirty = true;
+        }
+    }
+
+    /**
+     * Обход сайта завершён: сайт, который ещё в статусе INDEXING, получает INDEXED,
+     * а если доля ошибок достигла порога — FAILED. Учёт сайта прекращается.
+     *
+     * @param note пояснение для last_error (например, остановка по лимиту) или null
+     */
+    public void complete(Site site, String note) {
+        SiteProgress progress = sites.remove(site.getId());
+        Object lock = progress != null ? progress : site;
+        synchronized (lock) {
+            if (site.getStatus() == Status.INDEXING) {
+                site.setStatusTime(LocalDateTime.now());
+                if (progress != null && progress.errors > 0 && exceedsErrorRate(progress)) {
+                    site.setStatus(Status.FAILED);
+                    site.setLastError(errorSummary(progress, site.getLastError()));
+                } else {
+                    site.setStatus(Status.INDEXED);
+                    if (note != null) {
+                        site.setLastError(note);
+                    }
+                }
+                siteRepository.save(site);
+            } else if (progress != null && progress.dirty) {
+                siteRepository.updateHeartbeat(site.getId(), site.getStatusTime(), site.getLastError());
+            }
+        }
+        if (progress != null) {
+            SiteProgressSnapshot snapshot = progress.snapshot(System.nanoTime());
+            log.info("Скорость обхода {}: страниц {}, в среднем {} стр/с, ошибок {}",
+                    site.getUrl(), snapshot.getPages(),
+                    String.format("%.1f", snapshot.getAveragePagesPerSecond()), snapshot.getErrors());
+        }
+        stopIfIdle();
+    }
+
+    /**
+     * Прекращает учёт сайта без записи статуса: его уже записал другой узел кластера.
+     */
+    public void forget(Site site) {
+        sites.remove(site.getId());
+        stopIfIdle();
+    }
+
+    /**
+     * @return скорость и ошибки обхода сайта или null, если сайт сейчас не обходится
+     */
+    public SiteProgressSnapshot snapshot(int siteId) {
+        SiteProgress progress = sites.get(siteId);
+        return progress != null ? progress.snapshot(System.nanoTime()) : null;
+    }
+
+    /**
+     * Записывает накопленное и прекращает учёт всех сайтов (остановка индексации).
+     */
+    public void clear() {
+        flush();
+        sites.clear();
+        stopIfIdle();
+    }
+
+    void flush() {
+        long now = System.nanoTime();
+        long taken = 0;
+        for (SiteProgress progress : sites.values()) {
+            taken += progress.updateRate(now);
+        }
+        for (SiteProgress progress : sites.values()) {
+            progress.updateShare(taken);
+            synchronized (progress) {
+                if (!progress.dirty) {
+                    continue;
+                }
+                progress.dirty = false;
+                Site site = progress.site;
+                LocalDateTime heartbeat = progress.heartbeat;
+                if (heartbeat != null && heartbeat.isAfter(site.getStatusTime())) {
+                    site.setStatusTime(heartbeat);
+                }
+                try {
+                    siteRepository.updateHeartbeat(site.getId(), site.getStatusTime(), site.getLastError());
+                } catch (Exception e) {
+                    progress.dirty = true;
+                    log.warn("Не удалось обновить статус сайта {}: {}", site.getUrl(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean exceedsErrorRate(SiteProgress progress) {
+        long total = progress.pages.get() + progress.errors;
+        return progress.errors >= crawlerSettings.getSiteFailureErrorRate() * total;
+    }
+
+    private static String errorSummary(SiteProgress progress, String lastError) {
+        return "Не обработано " + progress.errors + " из " + (progress.pages.get() + progress.errors)
+                + " страниц, последняя ошибка: " + lastError;
+    }
+
+    private synchronized void stopIfIdle() {
+        if (sites.isEmpty() && flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+    }
+
+    /**
+     * Счётчики одного сайта. Страница учитывается без блокировок; изменения сущности Site
+     * и запись в БД выполняются под монитором счётчиков.
+     */
+    private static final class SiteProgress {
+        private final SiteCrawl crawl;
+        private final Site site;
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong pages = new AtomicLong();
+        private long errors;
+        // Время последней обработанной страницы; в сущность переносится при записи
+        private volatile LocalDateTime heartbeat;
+        private volatile boolean dirty;
+        // Скорость за последний интервал записи
+        private volatile double pagesPerSecond;
+        private long ratePages;
+        private long rateNanos = startedNanos;
+        // Доля загрузок сайта за последний интервал среди всех обходимых сайтов
+        private volatile double share;
+        private long rateTaken;
+        private long takenInInterval;
+
+        private SiteProgress(SiteCrawl crawl) {
+            this.crawl = crawl;
+            this.site = crawl.getSite();
+        }
+
+        private void recordPage() {
+            pages.incrementAndGet();
+            heartbeat = LocalDateTime.now();
+            dirty = true;
+        }
+
+        /**
+         * @return сколько страниц сайт взял из очереди за интервал
+         */
+        private synchronized long updateRate(long now) {
+            long elapsed = now - rateNanos;
+            if (elapsed <= 0) {
+                return 0;
+            }
+            long current = pages.get();
+            pagesPerSecond = (current - ratePages) * 1e9 / elapsed;
+            ratePages = current;
+            rateNanos = now;
+            long taken = crawl.getPagesTaken();
+            takenInInterval = taken - rateTaken;
+            rateTaken = taken;
+            return takenInInterval;
+        }
+
+        private synchronized void updateShare(long totalTaken) {
+            share = totalTaken > 0 ? (double) takenInInterval / totalTaken : 0;
+        }
+
+        private synchronized SiteProgressSnapshot snapshot(long now) {
+            long total = pages.get();
+            double seconds = Math.max(now - startedNanos, 1) / 1e9;
+            int queued = crawl.getQueueSize();
+            return new SiteProgressSnapshot(total, errors, crawl.getRetried(), pagesPerSecond, total / seconds,
+                    queued, Math.max(0, crawl.getPending() - queued), crawl.getWeight(), share);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+/**
+ * Лимиты чтения карт сайта: число файлов, включая вложенные, размер одного файла
+ * после распаковки и число адресов, которые берутся из одного файла.
+ */
+@Getter
+public class SitemapLimits {
+    private final int maxFiles;
+    private final long maxBytes;
+    private final int maxUrls;
+
+    public SitemapLimits(int maxFiles, long maxBytes, int maxUrls) {
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+        this.maxUrls = maxUrls;
+    }
+}
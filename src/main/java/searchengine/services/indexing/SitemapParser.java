@@ -0,0 +1,125 @@
+package searchengine.services.indexing;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Потоковый разбор sitemap.xml и индекса карт сайта (sitemapindex) через StAX.
+ * Дерево документа не строится: каждая запись передаётся обработчику сразу
+ * после закрывающего тега, и обработчик может прекратить чтение.
+ */
+public class SitemapParser {
+
+    private static final String SITEMAP_NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createFactory();
+
+    /**
+     * @param urls     получает записи &lt;url&gt;; false прекращает чтение карты
+     * @param sitemaps получает адреса вложенных карт из &lt;sitemap&gt;
+     */
+    public void parse(InputStream input, Predicate<SitemapUrl> urls, Consumer<String> sitemaps)
+            throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+        try {
+            String loc = null;
+            String lastmod = null;
+            int depth = 0;
+            // Глубина открытого <url> или <sitemap>; -1 — вне записи
+            int entryDepth = -1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (!isSitemapElement(reader)) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if (name.equals("url") || name.equals("sitemap")) {
+                        loc = null;
+                        lastmod = null;
+                        entryDepth = depth;
+                    } else if (depth == entryDepth + 1 && (name.equals("loc") || name.equals("lastmod"))) {
+                        // getElementText дочитывает до закрывающего тега
+                        String value = reader.getElementText().trim();
+                        depth--;
+                        if (name.equals("loc")) {
+                            loc = value;
+                        } else {
+                            lastmod = value;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == entryDepth && isSitemapElement(reader)) {
+                        entryDepth = -1;
+                        if (loc != null && !loc.isEmpty()) {
+                            if (reader.getLocalName().equals("url")) {
+                                if (!urls.test(new SitemapUrl(loc, parseLastmod(lastmod)))) {
+                                    return;
+                                }
+                            } else {
+                                sitemaps.accept(loc);
+                            }
+                        }
+                        loc = null;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Элемент протокола sitemaps, а не расширения (image:loc, video:… и т. п.).
+     * Карты без объявления пространства имён тоже встречаются, их элементы принимаются.
+     */
+    private static boolean isSitemapElement(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace == null || namespace.isEmpty() || namespace.equals(SITEMAP_NAMESPACE);
+    }
+
+    /**
+     * Дата в формате W3C Datetime (2024-05-01 или 2024-05-01T10:00:00+03:00),
+     * приведённая к локальному времени, как и Page.fetchTime.
+     *
+     * @return null, если дата не указана или не разобрана
+     */
+    static LocalDateTime parseLastmod(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay();
+            }
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Карты сайта приходят извне: DTD и внешние сущности не обрабатываем
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
@@ -0,0 +1,19 @@
+package searchengine.services.indexing;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись &lt;url&gt; из карты сайта: адрес и дата последнего изменения, если она указана.
+ */
+@Getter
+public class SitemapUrl {
+    private final String loc;
+    private final LocalDateTime lastModified;
+
+    public SitemapUrl(String loc, LocalDateTime lastModified) {
+        this.loc = loc;
+        this.lastModified = lastModified;
+    }
+}
@@ -0,0 +1,52 @@
+package searchengine.services.indexing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики одной стадии обхода: сколько задач выполняется сейчас, сколько выполнено,
+ * суммарное время работы и скорость за последний интервал наблюдения.
+ */
+class StageMetrics {
+
+    private static final long MIN_RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private long rateProcessed;
+    private long rateNanos = System.nanoTime();
+    private double perSecond;
+
+    /**
+     * @return время начала задачи для {@link #end(long)}
+     */
+    long begin() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    void end(long started) {
+        busyNanos.addAndGet(System.nanoTime() - started);
+        processed.incrementAndGet();
+        active.decrementAndGet();
+    }
+
+    PipelineStageSnapshot snapshot(String name, int threads, int queued, int capacity) {
+        long done = processed.get();
+        double rate;
+        synchronized (this) {
+            // Скорость пересчитывается не чаще раза в секунду, между вызовами отдаётся последняя
+            long now = System.nanoTime();
+            if (now - rateNanos >= MIN_RATE_INTERVAL_NANOS) {
+                perSecond = (done - rateProcessed) * 1e9 / (now - rateNanos);
+                rateProcessed = done;
+                rateNanos = now;
+            }
+            rate = perSecond;
+        }
+        double averageMs = done > 0 ? busyNanos.get() / 1e6 / done : 0;
+        return new PipelineStageSnapshot(name, threads, active.get(), queued, capacity, done, rate, averageMs);
+    }
+}
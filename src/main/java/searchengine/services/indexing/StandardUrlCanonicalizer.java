@@ -0,0 +1,235 @@
+package searchengine.services.indexing;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Канонизация URL сайта:
+ * <ul>
+ *     <li>схема и хост в нижнем регистре, порт по умолчанию и фрагмент отбрасываются;</li>
+ *     <li>www.host и host приводятся к хосту из конфигурации сайта;</li>
+ *     <li>точечные сегменты пути раскрываются;</li>
+ *     <li>процентное кодирование единообразно: незарезервированные символы декодируются,
+ *     остальные коды в верхнем регистре, не-ASCII символы кодируются в UTF-8;</li>
+ *     <li>параметры запроса и пути (;jsessionid=...) по правилам удаления отбрасываются,
+ *     оставшиеся параметры сортируются по имени.</li>
+ * </ul>
+ * Правило удаления — имя параметра без учёта регистра, * заменяет любую последовательность символов.
+ * В ключе страницы ({@link #dedupKey(String)}) дополнительно убираются index.html / index.php
+ * и завершающий слэш: /docs/ и /docs/index.html считаются одной страницей, но загружаются по
+ * найденному адресу, без лишнего перенаправления.
+ */
+public class StandardUrlCanonicalizer implements UrlCanonicalizer {
+
+    private static final Pattern INDEX_FILE = Pattern.compile(
+            "/(?:index|default)\\.(?:html?|php|aspx?|jsp)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PATH_PARAMETER = Pattern.compile(";([^/;=]*)(?:=[^/;]*)?");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String siteHost;
+    private final List<Pattern> dropParams;
+
+    /**
+     * @param siteUrl    адрес сайта из конфигурации; его хост считается каноническим
+     * @param dropParams правила удаления параметров
+     */
+    public StandardUrlCanonicalizer(String siteUrl, List<String> dropParams) {
+        String host = null;
+        try {
+            host = new URI(siteUrl).getHost();
+        } catch (Exception ignored) { }
+        this.siteHost = host != null ? host.toLowerCase(Locale.ROOT) : null;
+        this.dropParams = new ArrayList<>();
+        for (String rule : dropParams) {
+            if (rule != null && !rule.isBlank()) {
+                this.dropParams.add(toPattern(rule.trim()));
+            }
+        }
+    }
+
+    @Override
+    public String canonicalize(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url).normalize();
+            String scheme = uri.getScheme();
+            String host = uri.getHost();
+            if (scheme == null || host == null) {
+                return null;
+            }
+            scheme = scheme.toLowerCase(Locale.ROOT);
+            if (!scheme.equals("http") && !scheme.equals("https")) {
+                return null;
+            }
+
+            StringBuilder result = new StringBuilder(url.length())
+                    .append(scheme).append("://").append(canonicalHost(host));
+            int port = uri.getPort();
+            if (port != -1 && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+                result.append(':').append(port);
+            }
+            result.append(canonicalPath(uri.getRawPath()));
+            String query = canonicalQuery(uri.getRawQuery());
+            if (!query.isEmpty()) {
+                result.append('?').append(query);
+            }
+            return result.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String canonicalHost(String host) {
+        String lower = host.toLowerCase(Locale.ROOT);
+        if (siteHost != null && !lower.equals(siteHost) && stripWww(lower).equals(stripWww(siteHost))) {
+            return siteHost;
+        }
+        return lower;
+    }
+
+    private String canonicalPath(String rawPath) {
+        if (rawPath == null || rawPath.isEmpty()) {
+            return "/";
+        }
+        String path = rawPath;
+        if (path.indexOf(';') >= 0) {
+            Matcher matcher = PATH_PARAMETER.matcher(path);
+            StringBuilder kept = new StringBuilder(path.length());
+            while (matcher.find()) {
+                matcher.appendReplacement(kept, isDropped(matcher.group(1)) ? "" : Matcher.quoteReplacement(matcher.group()));
+            }
+            matcher.appendTail(kept);
+            path = kept.toString();
+        }
+        path = normalizeEncoding(path);
+        return path.isEmpty() ? "/" : path;
+    }
+
+    @Override
+    public String dedupKey(String canonicalUrl) {
+        if (canonicalUrl == null) {
+            return null;
+        }
+        int pathStart = canonicalUrl.indexOf('/', canonicalUrl.indexOf("://") + 3);
+        if (pathStart < 0) {
+            return canonicalUrl;
+        }
+        int queryStart = canonicalUrl.indexOf('?', pathStart);
+        int pathEnd = queryStart >= 0 ? queryStart : canonicalUrl.length();
+        String path = INDEX_FILE.matcher(canonicalUrl.substring(pathStart, pathEnd)).replaceFirst("/");
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return canonicalUrl.substring(0, pathStart) + path + canonicalUrl.substring(pathEnd);
+    }
+
+    private String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String[]> params = new ArrayList<>();
+        for (String param : rawQuery.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            String normalized = normalizeEncoding(param);
+            int eq = normalized.indexOf('=');
+            String name = eq >= 0 ? normalized.substring(0, eq) : normalized;
+            if (!isDropped(name)) {
+                params.add(new String[]{name, normalized});
+            }
+        }
+        // Сортировка устойчивая: значения одного параметра сохраняют порядок
+        params.sort(Comparator.comparing(param -> param[0]));
+        StringBuilder query = new StringBuilder(rawQuery.length());
+        for (String[] param : params) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(param[1]);
+        }
+        return query.toString();
+    }
+
+    private boolean isDropped(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (Pattern rule : dropParams) {
+            if (rule.matcher(lower).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Коды %XX незарезервированных символов декодируются, остальные пишутся в верхнем регистре;
+     * символы вне ASCII кодируются в UTF-8.
+     */
+    static String normalizeEncoding(String value) {
+        StringBuilder out = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean escape = c == '%' && i + 2 < value.length()
+                    && Character.digit(value.charAt(i + 1), 16) >= 0
+                    && Character.digit(value.charAt(i + 2), 16) >= 0;
+            if (!escape && c < 0x80) {
+                if (out != null) {
+                    out.append(c);
+                }
+                continue;
+            }
+            if (out == null) {
+                out = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escape) {
+                int decoded = Character.digit(value.charAt(i + 1), 16) * 16 + Character.digit(value.charAt(i + 2), 16);
+                if (isUnreserved(decoded)) {
+                    out.append((char) decoded);
+                } else {
+                    appendEscaped(out, decoded);
+                }
+                i += 2;
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < value.length() ? i + 2 : i + 1;
+                for (byte b : value.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscaped(out, b & 0xFF);
+                }
+                i = end - 1;
+            }
+        }
+        return out != null ? out.toString() : value;
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+    }
+
+    private static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private static Pattern toPattern(String rule) {
+        String[] parts = rule.toLowerCase(Locale.ROOT).split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(parts[i]));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
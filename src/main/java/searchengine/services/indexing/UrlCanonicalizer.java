@@ -0,0 +1,23 @@
+package searchengine.services.indexing;
+
+/**
+ * Приведение URL к каноническому виду: разные адреса одной страницы должны
+ * давать одну строку, по которой работают множество посещённых URL и ключ page.path.
+ * Канонический URL остаётся адресом для загрузки; преобразования, после которых сервер
+ * может ответить иначе (index.html, завершающий слэш), применяются только к ключу
+ * {@link #dedupKey(String)}. Реализации для сайтов создаёт {@link UrlCanonicalizerFactory}.
+ */
+public interface UrlCanonicalizer {
+
+    /**
+     * @return канонический абсолютный URL или null, если адрес некорректен
+     *         или не является ссылкой http/https
+     */
+    String canonicalize(String url);
+
+    /**
+     * @param canonicalUrl результат {@link #canonicalize(String)}
+     * @return ключ страницы для множества посещённых URL и page.path
+     */
+    String dedupKey(String canonicalUrl);
+}
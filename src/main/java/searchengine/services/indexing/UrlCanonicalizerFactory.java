@@ -0,0 +1,29 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.Site;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Создаёт канонизатор URL для сайта: общие правила удаления параметров
+ * из crawler-settings.canonical-drop-params дополняются правилами сайта (drop-params).
+ * Чтобы подключить свою канонизацию, достаточно объявить бин-наследник этого класса.
+ */
+@Component
+@RequiredArgsConstructor
+public class UrlCanonicalizerFactory {
+
+    private final CrawlerSettings crawlerSettings;
+
+    public UrlCanonicalizer forSite(Site site) {
+        List<String> dropParams = new ArrayList<>(crawlerSettings.getCanonicalDropParams());
+        if (site.getDropParams() != null) {
+            dropParams.addAll(site.getDropParams());
+        }
+        return new StandardUrlCanonicalizer(site.getUrl(), dropParams);
+    }
+}
@@ -0,0 +1,33 @@
+package searchengine.services.indexing;
+
+/**
+ * 64-битный отпечаток URL (FNV-1a с финальным перемешиванием из MurmurHash3).
+ * Для миллиона URL вероятность коллизии порядка 10^-8.
+ */
+public final class UrlFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private UrlFingerprint() {
+    }
+
+    public static long of(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    public static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
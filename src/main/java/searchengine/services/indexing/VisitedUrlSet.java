@@ -0,0 +1,93 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Множество посещённых URL одного обхода сайта. Хранит 64-битные отпечатки
+ * в {@link LongHashSet}, вставка — O(1) без копирования всего множества.
+ * <p>
+ * Размер точного множества ограничен. Если включён фильтр Блума, он получает все
+ * отпечатки и продолжает отсекать повторы после того, как точное множество заполнено;
+ * без фильтра новые URL сверх лимита отбрасываются.
+ */
+@Slf4j
+public class VisitedUrlSet {
+
+    private final LongHashSet fingerprints = new LongHashSet();
+    private final long maxEntries;
+    private final BloomFilter bloomFilter;
+    private final AtomicLong exact = new AtomicLong();
+    private final AtomicLong bloomOnly = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public VisitedUrlSet(long maxEntries, BloomFilter bloomFilter) {
+        this.maxEntries = maxEntries;
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * @return true, если URL встретился впервые и его нужно обработать
+     */
+    public boolean add(String url) {
+        return addFingerprint(UrlFingerprint.of(url));
+    }
+
+    /**
+     * Добавляет готовый отпечаток, например при восстановлении из контрольной точки.
+     */
+    public boolean addFingerprint(long fingerprint) {
+        if (exact.get() < maxEntries) {
+            boolean added = fingerprints.add(fingerprint);
+            if (added) {
+                exact.incrementAndGet();
+                if (bloomFilter != null) {
+                    bloomFilter.put(fingerprint);
+                }
+            }
+            return added;
+        }
+
+        if (fingerprints.contains(fingerprint)) {
+            return false;
+        }
+        if (bloomFilter == null) {
+            if (dropped.getAndIncrement() == 0) {
+                log.warn("Достигнут лимит посещённых URL ({}), новые ссылки отбрасываются", maxEntries);
+            }
+            return false;
+        }
+        boolean added = bloomFilter.put(fingerprint);
+        if (added) {
+            bloomOnly.incrementAndGet();
+        }
+        return added;
+    }
+
+    public boolean contains(String url) {
+        long fingerprint = UrlFingerprint.of(url);
+        return fingerprints.contains(fingerprint)
+                || (bloomFilter != null && bloomOnly.get() > 0 && bloomFilter.mightContain(fingerprint));
+    }
+
+    /**
+     * Отпечатки из точного множества; то, что попало только в фильтр Блума, перечислить нельзя.
+     */
+    public void forEachFingerprint(LongConsumer action) {
+        fingerprints.forEach(action);
+    }
+
+    public long size() {
+        return exact.get() + bloomOnly.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long memoryBytes() {
+        return fingerprints.memoryBytes() + (bloomFilter != null ? bloomFilter.memoryBytes() : 0);
+    }
+}
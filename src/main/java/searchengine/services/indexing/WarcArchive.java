@@ -0,0 +1,103 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Архив загруженных страниц в формате WARC (crawler-settings.warc-capture): ответы сервера
+ * пишутся в warc-dir/&lt;хост&gt;/ и затем служат источником для воспроизведения обхода
+ * без сети — /api/startIndexing?replay=true.
+ */
+@Slf4j
+@Component
+public class WarcArchive {
+
+    private static final long MB = 1024 * 1024;
+
+    private final CrawlerSettings crawlerSettings;
+    private final Map<String, WarcWriter> writers = new ConcurrentHashMap<>();
+
+    public WarcArchive(CrawlerSettings crawlerSettings) {
+        this.crawlerSettings = crawlerSettings;
+    }
+
+    public boolean isCaptureEnabled() {
+        return crawlerSettings.isWarcCapture();
+    }
+
+    /**
+     * Сохраняет загруженную страницу. Ошибка записи не прерывает обход.
+     */
+    void record(SiteCrawl crawl, PageTask task) {
+        WarcWriter writer = writers.computeIfAbsent(crawl.getHost(),
+                host -> new WarcWriter(hostDir(host), crawlerSettings.getWarcMaxFileMb() * MB));
+        try {
+            writer.write(WarcRecord.response(task.url, task.depth, task.response,
+                    WarcWriter.warcDate(), WarcWriter.recordId()));
+        } catch (IOException e) {
+            log.warn("Не удалось записать {} в архив WARC: {}", task.url, e.getMessage());
+        }
+    }
+
+    /**
+     * Закрывает текущий файл сайта: после этого он доступен для воспроизведения.
+     */
+    void close(String host) {
+        WarcWriter writer = writers.remove(host);
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть файл WARC сайта {}: {}", host, e.getMessage());
+            }
+        }
+    }
+
+    void closeAll() {
+        for (String host : List.copyOf(writers.keySet())) {
+            close(host);
+        }
+    }
+
+    /**
+     * Закрытые файлы архива сайта, новые первыми: при воспроизведении страница берётся
+     * из самой свежей записи.
+     */
+    public List<Path> files(String host) {
+        Path dir = hostDir(host);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(file -> file.getFileName().toString().endsWith(WarcWriter.EXTENSION))
+                    .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать каталог архива {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * @return true, если для сайта есть хотя бы один закрытый файл архива
+     */
+    public boolean hasArchive(String siteUrl) {
+        return !files(SiteCrawl.hostOf(siteUrl)).isEmpty();
+    }
+
+    private Path hostDir(String host) {
+        return Paths.get(crawlerSettings.getWarcDir(), host);
+    }
+}
@@ -0,0 +1,96 @@
+package searchengine.services.indexing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Последовательное чтение записей WARC. Файл .warc.gz — цепочка членов gzip,
+ * {@link GZIPInputStream} читает их подряд как один поток.
+ */
+public class WarcReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+
+    public WarcReader(InputStream in) {
+        this.in = new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    public static WarcReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return new WarcReader(file.getFileName().toString().endsWith(".gz")
+                ? new GZIPInputStream(in, BUFFER_SIZE) : in);
+    }
+
+    /**
+     * @return следующая запись или null в конце файла
+     */
+    public WarcRecord next() throws IOException {
+        String line;
+        // Пустые строки — хвост предыдущей записи
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isEmpty());
+        if (!line.startsWith("WARC/")) {
+            throw new IOException("Ожидался заголовок записи WARC, прочитано: " + line);
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        long length = -1;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                length = Long.parseLong(value);
+            } else {
+                headers.put(name, value);
+            }
+        }
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Некорректная длина записи WARC: " + length);
+        }
+        return new WarcRecord(headers, in.readNBytes((int) length));
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return trimCr(line);
+            }
+            line.write(b);
+        }
+        if (line.size() == 0) {
+            return null;
+        }
+        throw new EOFException("Файл WARC оборван");
+    }
+
+    private static String trimCr(ByteArrayOutputStream line) {
+        String value = line.toString(StandardCharsets.UTF_8);
+        return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
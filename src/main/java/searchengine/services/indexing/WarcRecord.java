@@ -0,0 +1,183 @@
+package searchengine.services.indexing;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Запись WARC: заголовки и блок содержимого. Для записей response блок — HTTP-ответ целиком
+ * (строка статуса, заголовки, тело), из него восстанавливается {@link FetchResult}.
+ */
+public class WarcRecord {
+
+    public static final String RESPONSE = "response";
+    public static final String WARCINFO = "warcinfo";
+    // Свои поля записи: глубина страницы при обходе и адрес после перенаправлений
+    static final String DEPTH_FIELD = "X-Crawl-Depth";
+    static final String FINAL_URI_FIELD = "X-Crawl-Final-URI";
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    // Поля заголовка в порядке записи
+    private final Map<String, String> headers;
+    private final byte[] block;
+
+    WarcRecord(Map<String, String> headers, byte[] block) {
+        this.headers = headers;
+        this.block = block;
+    }
+
+    public String getType() {
+        return header("WARC-Type");
+    }
+
+    public String getTargetUri() {
+        return header("WARC-Target-URI");
+    }
+
+    public int getDepth() {
+        String depth = header(DEPTH_FIELD);
+        try {
+            return depth != null ? Integer.parseInt(depth.trim()) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public boolean isResponse() {
+        return RESPONSE.equals(getType());
+    }
+
+    /**
+     * Значение поля заголовка; имя без учёта регистра.
+     */
+    public String header(String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    byte[] getBlock() {
+        return block;
+    }
+
+    /**
+     * Разбирает HTTP-ответ из блока записи response.
+     *
+     * @return null, если блок не похож на HTTP-ответ
+     */
+    public FetchResult toFetchResult() {
+        int headerEnd = indexOf(block, new byte[]{'\r', '\n', '\r', '\n'});
+        if (headerEnd < 0) {
+            return null;
+        }
+        String[] lines = new String(block, 0, headerEnd, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] status = lines[0].split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+            return null;
+        }
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(status[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Map<String, String> http = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                http.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+            }
+        }
+        byte[] body = new byte[block.length - headerEnd - 4];
+        System.arraycopy(block, headerEnd + 4, body, 0, body.length);
+        String finalUri = header(FINAL_URI_FIELD);
+        return new FetchResult(finalUri != null ? finalUri : getTargetUri(), statusCode,
+                http.get("content-type"), body, http.get("etag"), http.get("last-modified"));
+    }
+
+    /**
+     * Запись response для загруженной страницы. Тело хранится распакованным,
+     * поэтому Content-Encoding не пишется, а Content-Length соответствует телу.
+     */
+    static WarcRecord response(String targetUri, int depth, FetchResult response, String date, String recordId) {
+        ByteArrayOutputStream http = new ByteArrayOutputStream(response.getBody().length + 256);
+        writeLine(http, "HTTP/1.1 " + response.getStatusCode() + " ");
+        if (response.getContentType() != null) {
+            writeLine(http, "Content-Type: " + response.getContentType());
+        }
+        if (response.getEtag() != null) {
+            writeLine(http, "ETag: " + response.getEtag());
+        }
+        if (response.getLastModified() != null) {
+            writeLine(http, "Last-Modified: " + response.getLastModified());
+        }
+        writeLine(http, "Content-Length: " + response.getBody().length);
+        http.writeBytes(CRLF);
+        http.writeBytes(response.getBody());
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("WARC-Type", RESPONSE);
+        headers.put("WARC-Record-ID", recordId);
+        headers.put("WARC-Date", date);
+        headers.put("WARC-Target-URI", targetUri);
+        if (response.getUrl() != null && !response.getUrl().equals(targetUri)) {
+            headers.put(FINAL_URI_FIELD, response.getUrl());
+        }
+        headers.put(DEPTH_FIELD, String.valueOf(depth));
+        headers.put("Content-Type", "application/http;msgtype=response");
+        return new WarcRecord(headers, http.toByteArray());
+    }
+
+    static WarcRecord warcinfo(String filename, String date, String recordId) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("WARC-Type", WARCINFO);
+        headers.put("WARC-Record-ID", recordId);
+        headers.put("WARC-Date", date);
+        headers.put("WARC-Filename", filename);
+        headers.put("Content-Type", "application/warc-fields");
+        byte[] block = "software: SearchEngine\r\nformat: WARC File Format 1.1\r\n".getBytes(StandardCharsets.UTF_8);
+        return new WarcRecord(headers, block);
+    }
+
+    /**
+     * Запись целиком в формате WARC/1.1, включая завершающие два CRLF.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(block.length + 512);
+        writeLine(out, "WARC/1.1");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            writeLine(out, header.getKey() + ": " + header.getValue());
+        }
+        writeLine(out, "Content-Length: " + block.length);
+        out.writeBytes(CRLF);
+        out.writeBytes(block);
+        out.writeBytes(CRLF);
+        out.writeBytes(CRLF);
+        return out.toByteArray();
+    }
+
+    private static void writeLine(ByteArrayOutputStream out, String line) {
+        out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(CRLF);
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,95 @@
+package searchengine.services.indexing;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Файлы WARC одного сайта с ротацией по размеру. Каждая запись сжимается отдельным членом gzip,
+ * так что файл читается с любой записи, а оборванный хвост не портит остальные.
+ * Пока файл пишется, у него суффикс .open: воспроизведение берёт только закрытые файлы.
+ */
+class WarcWriter implements Closeable {
+
+    static final String EXTENSION = ".warc.gz";
+    private static final String OPEN_SUFFIX = ".open";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final DateTimeFormatter WARC_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private final Path dir;
+    private final long maxBytes;
+    private FileOutputStream out;
+    private Path current;
+    private int sequence;
+
+    WarcWriter(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    synchronized void write(WarcRecord record) throws IOException {
+        if (out == null || out.getChannel().position() >= maxBytes) {
+            rotate();
+        }
+        writeMember(record);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        Files.createDirectories(dir);
+        // Имена упорядочены по времени создания файла
+        String name = LocalDateTime.now(ZoneOffset.UTC).format(FILE_TIME)
+                + "-" + String.format("%05d", ++sequence) + EXTENSION;
+        current = dir.resolve(name + OPEN_SUFFIX);
+        out = new FileOutputStream(current.toFile());
+        writeMember(WarcRecord.warcinfo(name, warcDate(), recordId()));
+    }
+
+    private void writeMember(WarcRecord record) throws IOException {
+        // close() освобождает Deflater, а поток файла не закрывает: в него пишутся следующие записи
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        })) {
+            gzip.write(record.toBytes());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.close();
+        out = null;
+        String name = current.getFileName().toString();
+        Files.move(current, current.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())),
+                StandardCopyOption.ATOMIC_MOVE);
+        current = null;
+    }
+
+    static String warcDate() {
+        return LocalDateTime.now(ZoneOffset.UTC).format(WARC_DATE);
+    }
+
+    static String recordId() {
+        return "<urn:uuid:" + UUID.randomUUID() + ">";
+    }
+}
@@ -5,22 +5,38 @@
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import searchengine.config.CrawlerSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.model.Status;
 import searchengine.repository.IndexRepository;
 import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageErrorRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
-
+import searchengine.services.indexing.ClusterFrontier;
+import searchengine.services.indexing.ContentHash;
+import searchengine.services.indexing.CrawlEngine;
+import searchengine.services.indexing.FetchResult;
+import searchengine.services.indexing.IndexGenerations;
+import searchengine.services.indexing.PageFailureHandler;
+import searchengine.services.indexing.PageFetcher;
+import searchengine.services.indexing.PageReindexer;
+import searchengine.services.indexing.SiteStatusTracker;
+import searchengine.services.indexing.UrlCanonicalizerFactory;
+import searchengine.services.indexing.WarcArchive;
+
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +60,36 @@ class IndexingServiceTest {
     @Mock
     private LemmaRepository lemmaRepository;
 
+    @Mock
+    private CrawlEngine crawlEngine;
+
+    @Mock
+    private PageFetcher pageFetcher;
+
+    @Mock
+    private SiteStatusTracker siteStatusTracker;
+
+    @Mock
+    private PageFailureHandler pageFailureHandler;
+
+    @Mock
+    private PageErrorRepository pageErrorRepository;
+
+    @Mock
+    private ClusterFrontier clusterFrontier;
+
+    @Mock
+    private PageReindexer pageReindexer;
+
+    @Mock
+    private WarcArchive warcArchive;
+
+    @Mock
+    private IndexGenerations indexGenerations;
+
+    @Spy
+    private UrlCanonicalizerFactory urlCanonicalizerFactory = new UrlCanonicalizerFactory(new CrawlerSettings());
+
     @InjectMocks
     private IndexingServiceImpl indexingService;
 
@@ -68,13 +114,18 @@ void setUp() {
     void testStartIndexing_Success() {
         when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
         when(siteRepository.findAll()).thenReturn(Collections.emptyList());
+        stubCreateBuild();
 
         IndexingResponse response = indexingService.startIndexing();
 
         assertNotNull(response);
         assertTrue(response.isResult());
-        verify(siteRepository).deleteAll();
-        verify(siteRepository, atLeastOnce()).save(any());
+        // Прежний индекс остаётся для поиска, новый строится рядом
+        verify(siteRepository, never()).deleteAll();
+        verify(pageRepository, never()).deleteAll();
+        verify(indexGenerations).retireUnlisted(Collections.singletonList("https://test.com"));
+        verify(indexGenerations).createBuild("https://test.com", "Test Site");
+        verify(crawlEngine).start(anyList());
     }
 
     @Test
@@ -91,6 +142,121 @@ void testStartIndexing_AlreadyRunning() {
         verify(siteRepository, never()).deleteAll();
     }
 
+    @Test
+    void testReplayIndexing_WithoutArchiveKeepsData() {
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findAll()).thenReturn(Collections.emptyList());
+        when(warcArchive.hasArchive("https://test.com")).thenReturn(false);
+
+        IndexingResponse response = indexingService.replayIndexing();
+
+        assertFalse(response.isResult());
+        verify(siteRepository, never()).deleteAll();
+        verify(crawlEngine, never()).start(anyList());
+    }
+
+    @Test
+    void testReindex_StartsOnlyRequestedSite() {
+        Site otherSite = new Site();
+        otherSite.setUrl("https://other.com");
+        otherSite.setName("Other Site");
+        when(sitesList.getSites()).thenReturn(Arrays.asList(configSite, otherSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.reindex("https://test.com/");
+
+        assertTrue(response.isResult());
+        verify(pageReindexer).start(Collections.singletonList(siteEntity));
+        verify(crawlEngine, never()).start(anyList());
+        verify(pageRepository, never()).deleteAll();
+    }
+
+    @Test
+    void testReindex_UnknownSite() {
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+
+        IndexingResponse response = indexingService.reindex("https://unknown.com");
+
+        assertFalse(response.isResult());
+        verify(pageReindexer, never()).start(anyList());
+    }
+
+    @Test
+    void testReindex_SingleSiteWhileAnotherCrawlRuns() {
+        Site otherSite = new Site();
+        otherSite.setUrl("https://other.com");
+        otherSite.setName("Other Site");
+        searchengine.model.Site crawledSite = new searchengine.model.Site();
+        crawledSite.setId(3);
+        crawledSite.setUrl("https://other.com");
+        crawledSite.setStatus(Status.INDEXING);
+        when(sitesList.getSites()).thenReturn(Arrays.asList(configSite, otherSite));
+        lenient().when(siteRepository.findAll()).thenReturn(Arrays.asList(siteEntity, crawledSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.reindex("https://test.com");
+
+        assertTrue(response.isResult());
+        verify(pageReindexer).start(Collections.singletonList(siteEntity));
+        assertEquals(Status.INDEXING, crawledSite.getStatus());
+        verify(crawlEngine, never()).stop();
+    }
+
+    @Test
+    void testReindex_AllSitesWhileCrawlRuns() {
+        searchengine.model.Site crawledSite = new searchengine.model.Site();
+        crawledSite.setStatus(Status.INDEXING);
+        when(siteRepository.findAll()).thenReturn(Collections.singletonList(crawledSite));
+
+        IndexingResponse response = indexingService.reindex(null);
+
+        assertFalse(response.isResult());
+        verify(pageReindexer, never()).start(anyList());
+    }
+
+    @Test
+    void testStartIncrementalIndexing_KeepsExistingData() {
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findAll()).thenReturn(Collections.singletonList(siteEntity));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.startIncrementalIndexing();
+
+        assertTrue(response.isResult());
+        assertEquals(Status.INDEXING, siteEntity.getStatus());
+        verify(siteRepository, never()).deleteAll();
+        verify(pageRepository, never()).deleteAll();
+        verify(pageErrorRepository).deleteBySite(siteEntity);
+        verify(crawlEngine).start(anyList());
+    }
+
+    @Test
+    void testResumeIndexing_ContinuesInterruptedSites() {
+        siteEntity.setStatus(Status.INDEXING);
+        when(crawlEngine.isRunning()).thenReturn(false);
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.resumeIndexing();
+
+        assertTrue(response.isResult());
+        verify(pageRepository, never()).deleteAll();
+        verify(crawlEngine).start(anyList());
+    }
+
+    @Test
+    void testResumeIndexing_NothingToResume() {
+        siteEntity.setStatus(Status.INDEXED);
+        when(crawlEngine.isRunning()).thenReturn(false);
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.resumeIndexing();
+
+        assertFalse(response.isResult());
+        verify(crawlEngine, never()).start(anyList());
+    }
+
     @Test
     void testStopIndexing_Success() {
         siteEntity.setStatus(Status.INDEXING);
@@ -101,6 +267,7 @@ void testStopIndexing_Success() {
         assertNotNull(response);
         assertTrue(response.isResult());
         verify(siteRepository, atLeastOnce()).save(any());
+        verify(crawlEngine).stop();
     }
 
     @Test
@@ -114,6 +281,52 @@ void testStopIndexing_NotRunning() {
         assertEquals("Индексация не запущена", response.getError());
     }
 
+    @Test
+    void testStartSiteIndexing_BuildsBesideCurrentIndex() {
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+        stubCreateBuild();
+
+        IndexingResponse response = indexingService.startSiteIndexing("https://test.com/", false);
+
+        assertTrue(response.isResult());
+        assertEquals(Status.INDEXED, siteEntity.getStatus());
+        verify(indexGenerations).createBuild("https://test.com", "Test Site");
+        verify(indexRepository, never()).deleteChunkBySite(anyInt(), anyInt());
+        verify(pageRepository, never()).deleteChunkBySite(anyInt(), anyInt());
+        verify(pageRepository, never()).deleteAll();
+        verify(siteRepository, never()).deleteAll();
+        verify(crawlEngine).start(anyList());
+    }
+
+    @Test
+    void testStartSiteIndexing_AlreadyRunning() {
+        siteEntity.setStatus(Status.INDEXING);
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.startSiteIndexing("https://test.com", false);
+
+        assertFalse(response.isResult());
+        verify(pageRepository, never()).deleteChunkBySite(anyInt(), anyInt());
+        verify(crawlEngine, never()).start(anyList());
+    }
+
+    @Test
+    void testStopSiteIndexing_StopsOnlyThatSite() {
+        siteEntity.setStatus(Status.INDEXING);
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl("https://test.com")).thenReturn(siteEntity);
+
+        IndexingResponse response = indexingService.stopSiteIndexing("https://test.com");
+
+        assertTrue(response.isResult());
+        assertEquals(Status.FAILED, siteEntity.getStatus());
+        verify(crawlEngine).stop(siteEntity);
+        verify(pageReindexer).stop(siteEntity);
+        verify(crawlEngine, never()).stop();
+    }
+
     @Test
     void testIndexPage_ValidUrl() {
         when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
@@ -128,6 +341,21 @@ void testIndexPage_ValidUrl() {
         // For now, we're just checking it doesn't immediately fail validation
     }
 
+    @Test
+    void testIndexPage_RejectedWhileShadowBuildRuns() {
+        searchengine.model.Site shadow = new searchengine.model.Site();
+        shadow.setUrl("https://test.com");
+        shadow.setStatus(Status.INDEXING);
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findShadowByUrl("https://test.com")).thenReturn(shadow);
+
+        IndexingResponse response = indexingService.indexPage("https://test.com/page");
+
+        assertFalse(response.isResult());
+        verify(siteRepository, never()).findByUrl(anyString());
+        verifyNoInteractions(pageRepository);
+    }
+
     @Test
     void testIndexPage_UrlNotInConfig() {
         when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
@@ -192,16 +420,17 @@ void testMultipleSitesInConfig() {
 
         when(sitesList.getSites()).thenReturn(Arrays.asList(site1, site2));
         when(siteRepository.findAll()).thenReturn(Collections.emptyList());
+        stubCreateBuild();
 
         IndexingResponse response = indexingService.startIndexing();
 
         assertNotNull(response);
         assertTrue(response.isResult());
-        verify(siteRepository, times(2)).save(any());
+        verify(indexGenerations, times(2)).createBuild(anyString(), anyString());
     }
 
     @Test
-    void testIndexPage_ReindexingExistingPage() {
+    void testIndexPage_ReindexingExistingPage() throws Exception {
         searchengine.model.Page existingPage = new searchengine.model.Page();
         existingPage.setId(1);
         existingPage.setSite(siteEntity);
@@ -211,10 +440,67 @@ void testIndexPage_ReindexingExistingPage() {
         when(siteRepository.findByUrl(anyString())).thenReturn(siteEntity);
         when(pageRepository.findBySiteAndPath(any(), anyString())).thenReturn(existingPage);
         when(indexRepository.findByPage(existingPage)).thenReturn(Collections.emptyList());
+        when(pageFetcher.fetch(anyString())).thenReturn(htmlResponse("<html><body>Новый текст</body></html>"));
+        when(lemmatizationService.cleanHtmlContent(anyString())).thenReturn("Новый текст");
 
         IndexingResponse response = indexingService.indexPage("https://test.com/page");
 
         // Should delete old page before adding new one
         verify(pageRepository).delete(existingPage);
     }
+
+    @Test
+    void testIndexPage_UnchangedContentIsNotReindexed() throws Exception {
+        searchengine.model.Page existingPage = new searchengine.model.Page();
+        existingPage.setId(1);
+        existingPage.setSite(siteEntity);
+        existingPage.setPath("/page");
+        existingPage.setCode(200);
+        existingPage.setContentHash(ContentHash.of("Тот же текст"));
+
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl(anyString())).thenReturn(siteEntity);
+        when(pageRepository.findBySiteAndPath(any(), anyString())).thenReturn(existingPage);
+        when(pageFetcher.fetch(anyString())).thenReturn(htmlResponse("<html><body>Тот же текст</body></html>"));
+        when(lemmatizationService.cleanHtmlContent(anyString())).thenReturn("Тот  же ТЕКСТ");
+
+        IndexingResponse response = indexingService.indexPage("https://test.com/page");
+
+        assertTrue(response.isResult());
+        verify(pageRepository).updateFetchStatus(eq(1), eq(200), any(), any(), any());
+        verify(pageRepository, never()).delete(any());
+        verify(lemmatizationService, never()).getLemmas(anyString());
+    }
+
+    @Test
+    void testIndexPage_UsesCanonicalPath() throws Exception {
+        when(sitesList.getSites()).thenReturn(Collections.singletonList(configSite));
+        when(siteRepository.findByUrl(anyString())).thenReturn(siteEntity);
+        when(pageFetcher.fetch(anyString())).thenReturn(htmlResponse("<html><body>Текст</body></html>"));
+        when(lemmatizationService.cleanHtmlContent(anyString())).thenReturn("Текст");
+
+        IndexingResponse response = indexingService.indexPage("https://www.test.com/page/index.html?utm_source=x&b=2&a=1");
+
+        assertTrue(response.isResult());
+        // Загружается найденный адрес, index.html сворачивается только в пути страницы
+        verify(pageFetcher).fetch("https://test.com/page/index.html?a=1&b=2");
+        verify(pageRepository).findBySiteAndPath(siteEntity, "/page?a=1&b=2");
+    }
+
+    private FetchResult htmlResponse(String html) {
+        return new FetchResult("https://test.com/page", 200, "text/html; charset=UTF-8",
+                html.getBytes(StandardCharsets.UTF_8), null, null);
+    }
+
+    private void stubCreateBuild() {
+        when(indexGenerations.createBuild(anyString(), anyString())).thenAnswer(invocation -> {
+            searchengine.model.Site build = new searchengine.model.Site();
+            build.setId(2);
+            build.setUrl(invocation.getArgument(0));
+            build.setName(invocation.getArgument(1));
+            build.setStatus(Status.INDEXING);
+            build.setStatusTime(LocalDateTime.now());
+            return build;
+        });
+    }
 }
@@ -14,6 +14,13 @@
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.indexing.AdaptiveHostLimiter;
+import searchengine.services.indexing.ClusterFrontier;
+import searchengine.services.indexing.PageReindexer;
+import searchengine.services.indexing.PurgeProgress;
+import searchengine.services.indexing.SitePurger;
+import searchengine.services.indexing.CrawlPipeline;
+import searchengine.services.indexing.SiteStatusTracker;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -39,6 +46,24 @@ class StatisticsServiceTest {
     @Mock
     private LemmaRepository lemmaRepository;
 
+    @Mock
+    private AdaptiveHostLimiter hostLimiter;
+
+    @Mock
+    private SiteStatusTracker siteStatusTracker;
+
+    @Mock
+    private CrawlPipeline crawlPipeline;
+
+    @Mock
+    private ClusterFrontier clusterFrontier;
+
+    @Mock
+    private PageReindexer pageReindexer;
+
+    @Mock
+    private SitePurger sitePurger;
+
     @InjectMocks
     private StatisticsServiceImpl statisticsService;
 
@@ -81,8 +106,8 @@ void testGetStatistics_Success() {
         when(pageRepository.getTotalPages()).thenReturn(100);
         when(lemmaRepository.getTotalLemmas()).thenReturn(500L);
         when(siteRepository.findAll()).thenReturn(Arrays.asList(siteEntity1, siteEntity2));
-        when(siteRepository.findFirstByUrl("https://site1.com")).thenReturn(siteEntity1);
-        when(siteRepository.findFirstByUrl("https://site2.com")).thenReturn(siteEntity2);
+        when(siteRepository.findLatestByUrl("https://site1.com")).thenReturn(siteEntity1);
+        when(siteRepository.findLatestByUrl("https://site2.com")).thenReturn(siteEntity2);
         when(pageRepository.countBySite(siteEntity1)).thenReturn(50L);
         when(pageRepository.countBySite(siteEntity2)).thenReturn(50L);
         when(lemmaRepository.countBySite(siteEntity1)).thenReturn(250L);
@@ -106,7 +131,7 @@ void testGetStatistics_WithIndexingSite() {
         when(pageRepository.getTotalPages()).thenReturn(100);
         when(lemmaRepository.getTotalLemmas()).thenReturn(500L);
         when(siteRepository.findAll()).thenReturn(Arrays.asList(siteEntity2)); // Only indexing site
-        when(siteRepository.findFirstByUrl(anyString())).thenReturn(siteEntity2);
+        when(siteRepository.findLatestByUrl(anyString())).thenReturn(siteEntity2);
         when(pageRepository.countBySite(any())).thenReturn(50L);
         when(lemmaRepository.countBySite(any())).thenReturn(250L);
 
@@ -123,7 +148,7 @@ void testGetStatistics_WithoutIndexingSite() {
         when(pageRepository.getTotalPages()).thenReturn(100);
         when(lemmaRepository.getTotalLemmas()).thenReturn(500L);
         when(siteRepository.findAll()).thenReturn(Arrays.asList(siteEntity1, siteEntity2));
-        when(siteRepository.findFirstByUrl(anyString())).thenReturn(siteEntity1);
+        when(siteRepository.findLatestByUrl(anyString())).thenReturn(siteEntity1);
         when(pageRepository.countBySite(any())).thenReturn(50L);
         when(lemmaRepository.countBySite(any())).thenReturn(250L);
 
@@ -139,7 +164,7 @@ void testGetStatistics_SiteNotIndexed() {
         when(pageRepository.getTotalPages()).thenReturn(0);
         when(lemmaRepository.getTotalLemmas()).thenReturn(0L);
         when(siteRepository.findAll()).thenReturn(new ArrayList<>());
-        when(siteRepository.findFirstByUrl(anyString())).thenReturn(null);
+        when(siteRepository.findLatestByUrl(anyString())).thenReturn(null);
 
         StatisticsResponse response = statisticsService.getStatistics();
 
@@ -156,6 +181,19 @@ void testGetStatistics_SiteNotIndexed() {
         }
     }
 
+    @Test
+    void testGetStatistics_ReportsPurgeProgress() {
+        when(sitesList.getSites()).thenReturn(new ArrayList<>());
+        when(siteRepository.findAll()).thenReturn(new ArrayList<>());
+        when(sitePurger.progress()).thenReturn(new PurgeProgress("https://site1.com", "index", 30000, 15000.0));
+
+        StatisticsResponse response = statisticsService.getStatistics();
+
+        assertEquals("https://site1.com", response.getStatistics().getTotal().getPurge().getUrl());
+        assertEquals("index", response.getStatistics().getTotal().getPurge().getTable());
+        assertEquals(30000, response.getStatistics().getTotal().getPurge().getDeleted());
+    }
+
     @Test
     void testGetStatistics_WithError() {
         siteEntity1.setStatus(Status.FAILED);
@@ -165,7 +203,7 @@ void testGetStatistics_WithError() {
         when(pageRepository.getTotalPages()).thenReturn(50);
         when(lemmaRepository.getTotalLemmas()).thenReturn(250L);
         when(siteRepository.findAll()).thenReturn(Arrays.asList(siteEntity1));
-        when(siteRepository.findFirstByUrl("https://site1.com")).thenReturn(siteEntity1);
+        when(siteRepository.findLatestByUrl("https://site1.com")).thenReturn(siteEntity1);
         when(pageRepository.countBySite(siteEntity1)).thenReturn(50L);
         when(lemmaRepository.countBySite(siteEntity1)).thenReturn(250L);
 
@@ -0,0 +1,82 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveHostLimiterTest {
+
+    private static final String HOST = "test.com";
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private AdaptiveHostLimiter createLimiter() {
+        CrawlerSettings settings = new CrawlerSettings();
+        settings.setHostInitialConcurrency(2);
+        settings.setHostMaxConcurrency(4);
+        settings.setBreakerFailureThreshold(3);
+        settings.setBreakerOpenSeconds(30);
+        return new AdaptiveHostLimiter(settings);
+    }
+
+    @Test
+    void testLimitCapsConcurrentPages() {
+        AdaptiveHostLimiter limiter = createLimiter();
+
+        assertEquals(0, limiter.tryAcquire(HOST));
+        assertEquals(0, limiter.tryAcquire(HOST));
+        assertTrue(limiter.tryAcquire(HOST) > 0);
+
+        limiter.release(HOST);
+        assertEquals(0, limiter.tryAcquire(HOST));
+    }
+
+    @Test
+    void testFastResponsesRaiseLimitUpToMax() {
+        AdaptiveHostLimiter limiter = createLimiter();
+        for (int i = 0; i < 100; i++) {
+            limiter.recordResponse(HOST, FAST, 200, null);
+        }
+
+        HostLimitSnapshot snapshot = limiter.snapshot(HOST);
+        assertEquals(4, snapshot.getConcurrencyLimit());
+        assertEquals(50, snapshot.getLatencyMs());
+    }
+
+    @Test
+    void testOverloadHalvesLimitAndHonoursRetryAfter() {
+        AdaptiveHostLimiter limiter = createLimiter();
+        for (int i = 0; i < 100; i++) {
+            limiter.recordResponse(HOST, FAST, 200, null);
+        }
+
+        limiter.recordResponse(HOST, FAST, 429, "120");
+
+        HostLimitSnapshot snapshot = limiter.snapshot(HOST);
+        assertEquals(2, snapshot.getConcurrencyLimit());
+        assertTrue(snapshot.getRetryAfterMs() > 100_000);
+        assertTrue(limiter.tryAcquire(HOST) > TimeUnit.SECONDS.toNanos(100));
+    }
+
+    @Test
+    void testRepeatedFailuresOpenCircuit() {
+        AdaptiveHostLimiter limiter = createLimiter();
+        for (int i = 0; i < 3; i++) {
+            limiter.recordResponse(HOST, FAST, 500, null);
+        }
+
+        assertEquals("OPEN", limiter.snapshot(HOST).getCircuit());
+        assertTrue(limiter.tryAcquire(HOST) > TimeUnit.SECONDS.toNanos(20));
+    }
+
+    @Test
+    void testRetryAfterHttpDateAndCap() {
+        AdaptiveHostLimiter limiter = createLimiter();
+
+        assertEquals(0, limiter.parseRetryAfter("soon"));
+        assertEquals(TimeUnit.SECONDS.toNanos(600), limiter.parseRetryAfter("100000"));
+        assertEquals(0, limiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+}
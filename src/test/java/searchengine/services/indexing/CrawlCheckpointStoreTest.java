@@ -0,0 +1,76 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlCheckpointStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CrawlCheckpointStore createStore() {
+        CrawlerSettings settings = new CrawlerSettings();
+        settings.setCheckpointDir(tempDir.toString());
+        return new CrawlCheckpointStore(settings);
+    }
+
+    private SiteCrawl createCrawl(Site site) {
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://test.com");
+        SiteCrawl crawl = new SiteCrawl(site, config);
+        crawl.setVisited(new VisitedUrlSet(1000, null));
+        return crawl;
+    }
+
+    @Test
+    void testSaveAndLoadRestoresFrontierAndVisited() throws Exception {
+        Site site = new Site();
+        site.setId(7);
+        SiteCrawl crawl = createCrawl(site);
+        for (int i = 0; i < 5; i++) {
+            crawl.getVisited().add("https://test.com/" + i);
+            crawl.enqueue("https://test.com/" + i, i);
+        }
+        // Взятый в обработку URL тоже должен попасть в точку
+        FrontierEntry inFlight = crawl.poll();
+        CrawlCheckpointStore store = createStore();
+
+        store.save(crawl);
+        CrawlCheckpoint checkpoint = store.load(site);
+
+        assertNotNull(checkpoint);
+        assertEquals(5, checkpoint.getFrontier().size());
+        assertTrue(checkpoint.getFrontier().stream()
+                .anyMatch(entry -> entry.getUrl().equals(inFlight.getUrl()) && entry.getDepth() == inFlight.getDepth()));
+        assertEquals(5, checkpoint.getVisited().length);
+        VisitedUrlSet restored = new VisitedUrlSet(1000, null);
+        for (long fingerprint : checkpoint.getVisited()) {
+            restored.addFingerprint(fingerprint);
+        }
+        assertTrue(restored.contains("https://test.com/3"));
+        assertFalse(restored.contains("https://test.com/9"));
+    }
+
+    @Test
+    void testLoadRejectsOtherSiteAndDeleteRemovesFile() throws Exception {
+        Site site = new Site();
+        site.setId(1);
+        Site other = new Site();
+        other.setId(2);
+        CrawlCheckpointStore store = createStore();
+        store.save(createCrawl(site));
+        Files.copy(tempDir.resolve("site-1.ckpt"), tempDir.resolve("site-2.ckpt"));
+
+        assertNull(store.load(other));
+
+        store.delete(site);
+        assertNull(store.load(site));
+    }
+}
@@ -0,0 +1,48 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthFrontierTest {
+
+    @Test
+    void testShallowUrlsComeFirst() {
+        DepthFrontier frontier = new DepthFrontier();
+        frontier.add(new FrontierEntry("https://test.com/a/b/c", 3));
+        frontier.add(new FrontierEntry("https://test.com/a", 1));
+        frontier.add(new FrontierEntry("https://test.com/a/b", 2));
+
+        assertEquals(1, frontier.poll().getDepth());
+        assertEquals(2, frontier.poll().getDepth());
+        assertEquals(3, frontier.poll().getDepth());
+        assertNull(frontier.poll());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void testMostLinkedUrlFirstWithinDepth() {
+        DepthFrontier frontier = new DepthFrontier();
+        frontier.add(new FrontierEntry("https://test.com/rare", 1));
+        frontier.add(new FrontierEntry("https://test.com/popular", 1));
+        frontier.addInlink("https://test.com/popular");
+        frontier.addInlink("https://test.com/popular");
+
+        assertEquals("https://test.com/popular", frontier.poll().getUrl());
+        assertEquals("https://test.com/rare", frontier.poll().getUrl());
+        // Устаревшие узлы не возвращают URL повторно
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    void testDuplicateAddAndClear() {
+        DepthFrontier frontier = new DepthFrontier();
+
+        assertTrue(frontier.add(new FrontierEntry("https://test.com/a", 1)));
+        assertFalse(frontier.add(new FrontierEntry("https://test.com/a", 1)));
+        assertTrue(frontier.add(new FrontierEntry("https://test.com/b", 2)));
+        assertEquals(2, frontier.size());
+        assertEquals(2, frontier.clear());
+        assertNull(frontier.poll());
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostPolitenessSchedulerTest {
+
+    private HostPolitenessScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new HostPolitenessScheduler();
+    }
+
+    @Test
+    void testFirstRequestIsAllowedImmediately() {
+        scheduler.register("test.com", 1.0, 1);
+
+        assertEquals(0, scheduler.tryAcquire("test.com"));
+    }
+
+    @Test
+    void testSecondRequestHasToWait() {
+        scheduler.register("test.com", 1.0, 1);
+        scheduler.tryAcquire("test.com");
+
+        long wait = scheduler.tryAcquire("test.com");
+
+        assertTrue(wait > 0);
+        assertTrue(wait <= 1_000_000_000L);
+    }
+
+    @Test
+    void testBurstAllowsSeveralRequests() {
+        scheduler.register("test.com", 1.0, 3);
+
+        assertEquals(0, scheduler.tryAcquire("test.com"));
+        assertEquals(0, scheduler.tryAcquire("test.com"));
+        assertEquals(0, scheduler.tryAcquire("test.com"));
+        assertTrue(scheduler.tryAcquire("test.com") > 0);
+    }
+
+    @Test
+    void testHostsAreIndependent() {
+        scheduler.register("a.com", 1.0, 1);
+        scheduler.register("b.com", 1.0, 1);
+        scheduler.tryAcquire("a.com");
+
+        assertEquals(0, scheduler.tryAcquire("b.com"));
+    }
+
+    @Test
+    void testSharedHostKeepsLowerRate() {
+        scheduler.register("test.com", 100.0, 1);
+        scheduler.register("TEST.com", 0.5, 1);
+        scheduler.tryAcquire("test.com");
+
+        // При 0.5 запроса/сек следующий запрос возможен не раньше, чем через ~2 секунды
+        assertTrue(scheduler.tryAcquire("test.com") > 1_000_000_000L);
+    }
+
+    @Test
+    void testUnknownHostIsNotLimited() {
+        assertEquals(0, scheduler.tryAcquire("unknown.com"));
+    }
+}
@@ -0,0 +1,70 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.model.Site;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasedFrontierTest {
+
+    private SiteCrawl createClusteredCrawl(LeasedFrontier shared) {
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://test.com");
+        SiteCrawl crawl = new SiteCrawl(new Site(), config);
+        crawl.attachCluster(shared);
+        return crawl;
+    }
+
+    @Test
+    void testFoundUrlsGoToSharedQueueAndLeasesCloseOnComplete() {
+        LeasedFrontier shared = new LeasedFrontier(new Site());
+        SiteCrawl crawl = createClusteredCrawl(shared);
+        // Заполнение очереди
+        assertFalse(crawl.complete());
+
+        assertTrue(crawl.enqueue("https://test.com/a", 1));
+        assertTrue(crawl.isQueueEmpty());
+        assertEquals(1, shared.drainOutbound(10).size());
+
+        shared.leased("https://test.com/b", 7L);
+        assertTrue(crawl.acceptLeased(new FrontierEntry("https://test.com/b", 1)));
+        FrontierEntry entry = crawl.poll();
+        // Очередь узла пуста, но обход держится, пока кластер не подтвердит завершение
+        assertFalse(crawl.complete(entry.getUrl()));
+        assertEquals(List.of(7L), shared.drainDone());
+        assertTrue(crawl.releaseClusterHold());
+        assertFalse(crawl.releaseClusterHold());
+    }
+
+    @Test
+    void testLeaseIsKeptWhileRetryIsPending() {
+        LeasedFrontier shared = new LeasedFrontier(new Site());
+        SiteCrawl crawl = createClusteredCrawl(shared);
+        shared.leased("https://test.com/a", 3L);
+        crawl.acceptLeased(new FrontierEntry("https://test.com/a", 1));
+        FrontierEntry entry = crawl.poll();
+
+        crawl.scheduleRetry(entry, TimeUnit.SECONDS.toNanos(60));
+        crawl.complete(entry.getUrl());
+
+        assertTrue(shared.drainDone().isEmpty());
+        assertEquals(1, shared.leasedCount());
+    }
+
+    @Test
+    void testIdleLeasesAreReturnedButInFlightAreKept() {
+        LeasedFrontier shared = new LeasedFrontier(new Site());
+        shared.leased("https://test.com/a", 1L);
+        shared.leased("https://test.com/b", 2L);
+
+        List<Long> idle = shared.takeIdle(Map.of("https://test.com/a", new FrontierEntry("https://test.com/a", 1)));
+
+        assertEquals(List.of(2L), idle);
+        assertEquals(1, shared.leasedCount());
+        assertEquals(List.of(1L), shared.takeAll());
+    }
+}
@@ -0,0 +1,57 @@
+package searchengine.services.indexing;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkExtractorTest {
+
+    private final LinkExtractor extractor = new LinkExtractor("https://test.com/");
+
+    @Test
+    void testNormalizeStripsFragmentButKeepsTrailingSlash() {
+        assertEquals("https://test.com/page/", extractor.normalize("https://test.com/page/#top"));
+        assertEquals("https://test.com/page", extractor.keyOf(extractor.normalize("https://test.com/page/#top")));
+        assertEquals("https://test.com/", extractor.normalize("https://test.com"));
+        assertEquals("https://test.com/a?x=1", extractor.normalize("HTTPS://Test.com/a?x=1"));
+    }
+
+    @Test
+    void testNormalizeFiltersForeignAndBinaryLinks() {
+        assertNull(extractor.normalize("https://other.com/page"));
+        assertNull(extractor.normalize("https://test.com/file.PDF"));
+        assertNull(extractor.normalize("mailto:info@test.com"));
+        assertNull(extractor.normalize("ftp://test.com/file"));
+        assertNull(extractor.normalize(""));
+    }
+
+    @Test
+    void testCanonicalOfAcceptsOnlySameSiteLinks() {
+        Document document = Jsoup.parse(
+                "<head><link rel='canonical' href='https://www.test.com/a/'></head>",
+                "https://test.com/a?ref=1");
+        assertEquals("https://test.com/a/", extractor.canonicalOf(document));
+
+        Document foreign = Jsoup.parse("<head><link rel='canonical' href='https://other.com/a'></head>",
+                "https://test.com/a");
+        assertNull(extractor.canonicalOf(foreign));
+    }
+
+    @Test
+    void testExtractReportsCountsAndRemovesDuplicates() {
+        Document document = Jsoup.parse(
+                "<a href='/a'>1</a><a href='/a/'>2</a><a href='/a#x'>3</a>"
+                        + "<a href='/b'>4</a><a href='https://other.com/'>5</a><a href='/img.png'>6</a>",
+                "https://test.com/");
+
+        ExtractedLinks links = extractor.extract(document);
+
+        assertEquals(6, links.getExtracted());
+        assertEquals(2, links.getFiltered());
+        assertEquals(List.of("https://test.com/a", "https://test.com/b"), links.getUrls());
+    }
+}
@@ -0,0 +1,34 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryPressureMonitorTest {
+
+    @Test
+    void testPressureWhenHeapAfterGcExceedsCeiling() {
+        CrawlerSettings crawlerSettings = new CrawlerSettings();
+        crawlerSettings.setMemoryCeilingMb(1);
+        crawlerSettings.setMemoryPressureRatio(0.5);
+        MemoryPressureMonitor monitor = new MemoryPressureMonitor(crawlerSettings);
+        System.gc();
+
+        assertEquals(1024 * 1024, monitor.getLimitBytes());
+        assertTrue(monitor.usedAfterGc() > 0);
+        assertTrue(monitor.isUnderPressure());
+    }
+
+    @Test
+    void testNoPressureBelowCeiling() {
+        CrawlerSettings crawlerSettings = new CrawlerSettings();
+        crawlerSettings.setMemoryPressureRatio(1.0);
+        MemoryPressureMonitor monitor = new MemoryPressureMonitor(crawlerSettings);
+        System.gc();
+
+        // Потолок не задан: берётся вся куча
+        assertEquals(Runtime.getRuntime().maxMemory(), monitor.getLimitBytes());
+        assertFalse(monitor.isUnderPressure());
+    }
+}
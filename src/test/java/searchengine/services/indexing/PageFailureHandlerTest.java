@@ -0,0 +1,78 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+import searchengine.repository.PageErrorRepository;
+import searchengine.repository.SiteRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageFailureHandlerTest {
+
+    private final List<Object> saved = new ArrayList<>();
+    private final CrawlerSettings crawlerSettings = new CrawlerSettings();
+    private final PageFailureHandler handler = new PageFailureHandler(crawlerSettings,
+            proxy(PageErrorRepository.class), new SiteStatusTracker(crawlerSettings, proxy(SiteRepository.class)));
+
+    @Test
+    void testBackoffDoublesUpToLimit() {
+        crawlerSettings.setRetryBaseDelayMs(1000);
+        crawlerSettings.setRetryMaxDelayMs(5000);
+
+        assertEquals(1000, handler.backoffMillis(0));
+        assertEquals(2000, handler.backoffMillis(1));
+        assertEquals(4000, handler.backoffMillis(2));
+        assertEquals(5000, handler.backoffMillis(3));
+        assertEquals(5000, handler.backoffMillis(100));
+    }
+
+    @Test
+    void testRetriesStopAfterMaxAttempts() {
+        crawlerSettings.setRetryMaxAttempts(2);
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://test.com");
+        SiteCrawl crawl = new SiteCrawl(new Site(), config);
+
+        assertTrue(handler.retry(crawl, new FrontierEntry("https://test.com/a", 1, 0), "timeout"));
+        assertTrue(handler.retry(crawl, new FrontierEntry("https://test.com/a", 1, 1), "timeout"));
+        assertFalse(handler.retry(crawl, new FrontierEntry("https://test.com/a", 1, 2), "timeout"));
+        assertEquals(2, crawl.getRetried());
+    }
+
+    @Test
+    void testFailureIsRecordedForPage() {
+        Site site = new Site();
+        handler.recordFailure(site, "https://test.com/a", "/a", "parse", 1, 200, "boom");
+
+        assertEquals(1, saved.size());
+        searchengine.model.PageError error = (searchengine.model.PageError) saved.get(0);
+        assertEquals("/a", error.getPath());
+        assertEquals("parse", error.getStage());
+        assertEquals(200, error.getCode());
+    }
+
+    @Test
+    void testTransientStatusCodes() {
+        assertTrue(PageFailureHandler.isTransient(503));
+        assertTrue(PageFailureHandler.isTransient(429));
+        assertFalse(PageFailureHandler.isTransient(404));
+        assertFalse(PageFailureHandler.isTransient(200));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("save")) {
+                        saved.add(args[0]);
+                        return args[0];
+                    }
+                    return method.getReturnType() == int.class ? 0 : null;
+                });
+    }
+}
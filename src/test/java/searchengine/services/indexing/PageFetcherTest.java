@@ -0,0 +1,151 @@
+package searchengine.services.indexing;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageFetcherTest {
+
+    private HttpServer server;
+    private PageFetcher fetcher;
+    private String baseUrl;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serve("/page", "text/html; charset=UTF-8", "<html><body>Привет</body></html>".getBytes(StandardCharsets.UTF_8), false);
+        serve("/file", "application/pdf", new byte[4000], false);
+        serve("/robots.txt", "text/plain", "User-agent: *".getBytes(StandardCharsets.UTF_8), false);
+        serve("/large", "text/html", new byte[4000], false);
+        serve("/chunked", "text/html", new byte[4000], true);
+        serve("/sitemap.xml.gz", "application/octet-stream", gzip(new byte[500]), false);
+        serve("/bomb.xml.gz", "application/octet-stream", gzip(new byte[100_000]), false);
+        server.createContext("/stalled", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("<html><body>".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                // Заголовки и начало тела отправлены, остальное не приходит
+                release.await(10, TimeUnit.SECONDS);
+            } catch (Exception ignored) {
+                // клиент оборвал загрузку
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        CrawlerSettings settings = new CrawlerSettings();
+        settings.setMaxPageBytes(1000);
+        settings.setBodyTimeoutMs(300);
+        fetcher = new PageFetcher(settings, new AdaptiveHostLimiter(settings));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        fetcher.shutdown();
+        server.stop(0);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private void serve(String path, String contentType, byte[] body, boolean chunked) {
+        server.createContext(path, exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            // 0 — тело без Content-Length (chunked)
+            exchange.sendResponseHeaders(200, chunked ? 0 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (Exception ignored) {
+                // клиент оборвал загрузку
+            }
+        });
+    }
+
+    @Test
+    void testHtmlPageIsRead() throws Exception {
+        FetchResult result = fetcher.fetch(baseUrl + "/page");
+
+        assertFalse(result.isRejected());
+        assertEquals(200, result.getStatusCode());
+        assertTrue(result.parse().text().contains("Привет"));
+    }
+
+    @Test
+    void testNonHtmlIsRejectedByHeaders() throws Exception {
+        FetchResult result = fetcher.fetch(baseUrl + "/file");
+
+        assertEquals(FetchRejection.CONTENT_TYPE, result.getRejection());
+        assertEquals(0, result.getBody().length);
+    }
+
+    @Test
+    void testPlainTextIsReadOnlyAsTextResource() throws Exception {
+        assertEquals(FetchRejection.CONTENT_TYPE, fetcher.fetch(baseUrl + "/robots.txt").getRejection());
+
+        FetchResult result = fetcher.fetchText(baseUrl + "/robots.txt");
+
+        assertFalse(result.isRejected());
+        assertEquals("User-agent: *", new String(result.getBody(), StandardCharsets.UTF_8));
+        assertEquals(FetchRejection.CONTENT_TYPE, fetcher.fetchText(baseUrl + "/file").getRejection());
+    }
+
+    @Test
+    void testContentLengthOverLimitIsRejected() throws Exception {
+        assertEquals(FetchRejection.TOO_LARGE, fetcher.fetch(baseUrl + "/large").getRejection());
+    }
+
+    @Test
+    void testBodyWithoutLengthIsCutAtLimit() throws Exception {
+        assertEquals(FetchRejection.TOO_LARGE, fetcher.fetch(baseUrl + "/chunked").getRejection());
+    }
+
+    @Test
+    void testStalledBodyTimesOut() {
+        long started = System.nanoTime();
+
+        assertThrows(HttpTimeoutException.class, () -> fetcher.fetch(baseUrl + "/stalled"));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void testCompressedSitemapIsUnpacked() throws Exception {
+        assertEquals(500, fetcher.fetchSitemap(baseUrl + "/sitemap.xml.gz", 1000).length);
+    }
+
+    @Test
+    void testSitemapIsLimitedAfterUnpacking() {
+        // Сжатый файл меньше лимита, распакованный — в сто раз больше
+        assertThrows(IOException.class, () -> fetcher.fetchSitemap(baseUrl + "/bomb.xml.gz", 1000));
+    }
+
+    @Test
+    void testStalledSitemapTimesOut() {
+        long started = System.nanoTime();
+
+        assertThrows(HttpTimeoutException.class, () -> fetcher.fetchSitemap(baseUrl + "/stalled", 1000));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+    }
+}
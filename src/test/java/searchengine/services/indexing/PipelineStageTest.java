@@ -0,0 +1,75 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    private final PipelineStage stage = new PipelineStage("test", 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        stage.stop();
+    }
+
+    @Test
+    void testSubmitWaitsWhileQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        stage.submit(() -> {
+            started.countDown();
+            await(release);
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // Единственный поток занят, второй задачей очередь заполнена
+        stage.submit(done::countDown);
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                stage.submit(done::countDown);
+                submitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(submitted.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, stage.snapshot().getQueued());
+
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        producer.join();
+
+        PipelineStageSnapshot snapshot = stage.snapshot();
+        assertEquals(3, snapshot.getProcessed());
+        assertEquals(1, snapshot.getQueueCapacity());
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopStage() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        stage.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        stage.submit(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsRulesTest {
+
+    private static final String ROBOTS = String.join("\n",
+            "User-agent: *",
+            "Disallow: /admin",
+            "Disallow: /*.php$",
+            "Allow: /admin/public",
+            "Crawl-delay: 2",
+            "",
+            "User-agent: OtherBot",
+            "Disallow: /",
+            "",
+            "Sitemap: https://test.com/sitemap_index.xml");
+
+    @Test
+    void testDisallowAndLongestAllowWins() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "HeliontSearchBot");
+
+        assertFalse(rules.isAllowed("/admin/users"));
+        assertTrue(rules.isAllowed("/admin/public/page"));
+        assertTrue(rules.isAllowed("/news"));
+        assertEquals(2.0, rules.getCrawlDelay());
+        assertEquals(1, rules.getSitemaps().size());
+    }
+
+    @Test
+    void testWildcardAndEndAnchor() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "HeliontSearchBot");
+
+        assertFalse(rules.isAllowed("/forum/index.php"));
+        assertTrue(rules.isAllowed("/forum/index.php?page=2"));
+    }
+
+    @Test
+    void testSpecificGroupOverridesWildcard() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "OtherBot/1.0");
+
+        assertFalse(rules.isAllowed("/news"));
+        assertNull(rules.getCrawlDelay());
+    }
+
+    @Test
+    void testEmptyDisallowAllowsEverything() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow:\n", "HeliontSearchBot");
+
+        assertTrue(rules.isAllowed("/anything"));
+    }
+}
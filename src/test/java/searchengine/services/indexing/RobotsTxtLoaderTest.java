@@ -0,0 +1,66 @@
+package searchengine.services.indexing;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsTxtLoaderTest {
+
+    private HttpServer server;
+    private RobotsTxtLoader loader;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        CrawlerSettings settings = new CrawlerSettings();
+        loader = new RobotsTxtLoader(settings, new PageFetcher(settings, new AdaptiveHostLimiter(settings)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void serveRobots(String contentType, String text) {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        server.createContext("/robots.txt", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    @Test
+    void testPlainTextRobotsIsParsed() {
+        serveRobots("text/plain; charset=utf-8", "User-agent: *\nDisallow: /private\nCrawl-delay: 2\n"
+                + "Sitemap: https://example.com/sitemap.xml\n");
+
+        RobotsRules rules = loader.rulesFor(baseUrl + "/");
+
+        assertFalse(rules.isAllowed("/private/page"));
+        assertTrue(rules.isAllowed("/public"));
+        assertEquals(2.0, rules.getCrawlDelay().doubleValue());
+        assertEquals(1, rules.getSitemaps().size());
+    }
+
+    @Test
+    void testBinaryRobotsAllowsEverything() {
+        serveRobots("application/octet-stream", "User-agent: *\nDisallow: /\n");
+
+        assertTrue(loader.rulesFor(baseUrl + "/").isAllowed("/page"));
+    }
+}
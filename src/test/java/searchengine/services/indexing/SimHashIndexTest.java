@@ -0,0 +1,67 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimHashIndexTest {
+
+    private static String article(String ending) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("слово").append(i).append(' ');
+        }
+        return text.append(ending).toString();
+    }
+
+    @Test
+    void testSmallEditKeepsHashClose() {
+        long original = SimHash.of(article("подвал страницы"));
+        long edited = SimHash.of(article("другой подвал"));
+        long unrelated = SimHash.of("совсем другой текст про погоду и новости города за неделю");
+
+        assertTrue(SimHash.distance(original, edited) <= 3);
+        assertTrue(SimHash.distance(original, unrelated) > 3);
+        assertEquals(1.0, SimHash.similarity(original, original));
+    }
+
+    @Test
+    void testFindOrAddReturnsSimilarPage() {
+        SimHashIndex index = SimHashIndex.forSimilarity(0.95);
+
+        assertNull(index.findOrAdd(SimHash.of(article("подвал страницы")), 1));
+        assertEquals(1, index.findOrAdd(SimHash.of(article("другой подвал")), 2));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testSamePageIsNotItsOwnDuplicate() {
+        SimHashIndex index = new SimHashIndex(3);
+        long hash = 0x0F0F0F0F0F0F0F0FL;
+
+        assertNull(index.findOrAdd(hash, 7));
+        assertNull(index.findOrAdd(hash ^ 1L, 7));
+        assertEquals(7, index.findOrAdd(hash ^ 0b110L, 8));
+    }
+
+    @Test
+    void testDistantHashIsAdded() {
+        SimHashIndex index = new SimHashIndex(3);
+
+        assertNull(index.findOrAdd(0L, 1));
+        assertNull(index.findOrAdd(0xFFL, 2));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testRemovedHashNoLongerMatches() {
+        SimHashIndex index = new SimHashIndex(3);
+        long hash = 0x0F0F0F0F0F0F0F0FL;
+        index.add(hash, 1);
+
+        index.remove(hash, 1);
+
+        assertNull(index.findOrAdd(hash ^ 1L, 2));
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,159 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.model.Site;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SiteCrawlTest {
+
+    private SiteCrawl createCrawl(Long maxPages) {
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://test.com");
+        config.setMaxPages(maxPages);
+        return new SiteCrawl(new Site(), config);
+    }
+
+    @Test
+    void testWithoutBudgetNothingIsExhausted() {
+        SiteCrawl crawl = createCrawl(null);
+        crawl.enqueue("https://test.com/a", 1);
+        crawl.poll();
+
+        assertNull(crawl.checkBudget());
+        assertEquals(Integer.MAX_VALUE, crawl.getMaxDepth());
+    }
+
+    @Test
+    void testPageBudgetStopsCrawlAndDrainsQueue() {
+        SiteCrawl crawl = createCrawl(2L);
+        // Задача заполнения очереди
+        assertTrue(crawl.claimSeeding());
+        for (int i = 0; i < 5; i++) {
+            crawl.enqueue("https://test.com/" + i, 1);
+        }
+        assertFalse(crawl.complete());
+
+        FrontierEntry first = crawl.poll();
+        FrontierEntry second = crawl.poll();
+        String note = crawl.checkBudget();
+        assertNotNull(note);
+
+        // В очереди оставалось 3 URL, две страницы ещё в обработке
+        assertFalse(crawl.stopForBudget(note));
+        assertFalse(crawl.enqueue("https://test.com/late", 1));
+        assertFalse(crawl.complete(first.getUrl()));
+        assertTrue(crawl.complete(second.getUrl()));
+        assertEquals(note, crawl.getBudgetNote());
+    }
+
+    @Test
+    void testRetryKeepsCrawlOpenUntilDue() throws InterruptedException {
+        SiteCrawl crawl = createCrawl(2L);
+        crawl.complete();
+        crawl.enqueue("https://test.com/a", 1);
+        FrontierEntry entry = crawl.poll();
+
+        assertTrue(crawl.scheduleRetry(entry, TimeUnit.MILLISECONDS.toNanos(50)));
+        // Текущая попытка завершена, но обход ждёт повтора
+        assertFalse(crawl.complete(entry.getUrl()));
+        assertTrue(crawl.isQueueEmpty());
+        assertNull(crawl.poll());
+        assertEquals(1, crawl.getQueueSize());
+
+        Thread.sleep(60);
+        assertFalse(crawl.isQueueEmpty());
+        FrontierEntry retry = crawl.poll();
+        assertEquals("https://test.com/a", retry.getUrl());
+        assertEquals(1, retry.getAttempt());
+        // Повтор не расходует лимит max-pages
+        assertNull(crawl.checkBudget());
+        assertTrue(crawl.complete(retry.getUrl()));
+        assertEquals(1, crawl.getRetried());
+    }
+
+    @Test
+    void testWorkerQuotaLimitsConcurrentFetches() {
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://test.com");
+        config.setMaxWorkers(2);
+        SiteCrawl crawl = new SiteCrawl(new Site(), config);
+
+        assertTrue(crawl.tryReserveWorker());
+        assertTrue(crawl.tryReserveWorker());
+        assertFalse(crawl.tryReserveWorker());
+        crawl.releaseWorker();
+        assertTrue(crawl.tryReserveWorker());
+    }
+
+    @Test
+    void testHeavierSiteAdvancesSlower() {
+        searchengine.config.Site config = new searchengine.config.Site();
+        config.setUrl("https://big.com");
+        config.setWeight(3);
+        SiteCrawl heavy = new SiteCrawl(new Site(), config);
+        SiteCrawl light = createCrawl(null);
+
+        // Три страницы тяжёлого сайта «стоят» столько же, сколько одна страница лёгкого
+        for (int i = 0; i < 3; i++) {
+            heavy.charge();
+        }
+        light.charge();
+        assertEquals(light.getPass(), heavy.getPass(), 1e-9);
+
+        SiteCrawl late = createCrawl(null);
+        late.startPassAt(light.getPass());
+        assertEquals(light.getPass(), late.getPass(), 1e-9);
+    }
+
+    @Test
+    void testContentIsClaimedByFirstPageOnly() throws Exception {
+        SiteCrawl crawl = createCrawl(null);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> owners = new ArrayList<>();
+        for (int i = 1; i <= threads; i++) {
+            int pageId = i;
+            owners.add(pool.submit(() -> {
+                start.await();
+                return crawl.claimContent("hash", pageId);
+            }));
+        }
+        start.countDown();
+        int claimed = 0;
+        for (Future<Integer> owner : owners) {
+            if (owner.get() == null) {
+                claimed++;
+            }
+        }
+        pool.shutdown();
+
+        // Одинаковые страницы, сохраняемые одновременно: индексируется ровно одна
+        assertEquals(1, claimed);
+    }
+
+    @Test
+    void testReleasedContentCanBeClaimedAgain() {
+        SiteCrawl crawl = createCrawl(null);
+        assertNull(crawl.claimContent("hash", 1));
+        assertNull(crawl.claimContent("hash", 1));
+        assertEquals(1, crawl.claimContent("hash", 2));
+
+        // Чужое закрепление не снимается
+        crawl.releaseContent("hash", 2);
+        assertEquals(1, crawl.claimContent("hash", 2));
+
+        // Текст первой страницы изменился: её прежняя копия индексируется
+        crawl.releaseContent("hash", 1);
+        assertNull(crawl.claimContent("hash", 2));
+    }
+}
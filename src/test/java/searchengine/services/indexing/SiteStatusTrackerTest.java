@@ -0,0 +1,123 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.CrawlerSettings;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.SiteRepository;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SiteStatusTrackerTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private SiteStatusTracker tracker;
+    private Site site;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerSettings crawlerSettings = new CrawlerSettings();
+        // Фоновая запись не должна вмешиваться: flush вызывается из теста
+        crawlerSettings.setStatusFlushIntervalMs(60_000);
+        crawlerSettings.setSiteFailureErrorRate(0.2);
+        tracker = new SiteStatusTracker(crawlerSettings, recordingRepository());
+
+        site = new Site();
+        site.setId(1);
+        site.setUrl("https://test.com");
+        site.setStatus(Status.INDEXING);
+        site.setStatusTime(LocalDateTime.now().minusMinutes(1));
+        searchengine.config.Site settings = new searchengine.config.Site();
+        settings.setUrl("https://test.com");
+        tracker.track(new SiteCrawl(site, settings));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.clear();
+    }
+
+    @Test
+    void testPagesAreWrittenAsOneHeartbeat() {
+        for (int i = 0; i < 100; i++) {
+            tracker.recordPage(site);
+        }
+        tracker.flush();
+        tracker.flush();
+
+        assertEquals(List.of("updateHeartbeat"), calls);
+        assertEquals(100, tracker.snapshot(1).getPages());
+    }
+
+    @Test
+    void testSingleErrorDoesNotFailSite() {
+        for (int i = 0; i < 20; i++) {
+            tracker.recordPage(site);
+        }
+        tracker.recordError(site, "timeout");
+
+        assertEquals(Status.INDEXING, site.getStatus());
+        assertTrue(calls.isEmpty());
+        tracker.flush();
+        assertEquals(List.of("updateHeartbeat"), calls);
+        assertEquals("timeout", site.getLastError());
+
+        tracker.complete(site, null);
+        assertEquals(Status.INDEXED, site.getStatus());
+    }
+
+    @Test
+    void testSiteFailsOnlyWhenCrawlCompletes() {
+        for (int i = 0; i < 8; i++) {
+            tracker.recordPage(site);
+        }
+        tracker.recordError(site, "first");
+        tracker.recordError(site, "second");
+        tracker.recordError(site, "third");
+        // Доля ошибок выше порога, но обход ещё идёт
+        assertEquals(Status.INDEXING, site.getStatus());
+        assertTrue(calls.isEmpty());
+        assertEquals(3, tracker.snapshot(1).getErrors());
+
+        tracker.complete(site, null);
+        assertEquals(Status.FAILED, site.getStatus());
+        assertEquals(List.of("save"), calls);
+        assertTrue(site.getLastError().endsWith("third"));
+    }
+
+    @Test
+    void testCompleteFailsSmallSiteAboveErrorRate() {
+        tracker.recordPage(site);
+        tracker.recordError(site, "unreachable");
+        tracker.complete(site, null);
+
+        assertEquals(Status.FAILED, site.getStatus());
+        assertEquals(List.of("save"), calls);
+    }
+
+    @Test
+    void testCompleteMarksIndexedAndStopsTracking() {
+        tracker.recordPage(site);
+        tracker.complete(site, null);
+
+        assertEquals(Status.INDEXED, site.getStatus());
+        assertEquals(List.of("save"), calls);
+        assertNull(tracker.snapshot(1));
+    }
+
+    private SiteRepository recordingRepository() {
+        return (SiteRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SiteRepository.class},
+                (proxy, method, args) -> {
+                    calls.add(method.getName());
+                    return method.getReturnType() == int.class ? 1 : null;
+                });
+    }
+}
@@ -0,0 +1,97 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SitemapParserTest {
+
+    private final SitemapParser parser = new SitemapParser();
+
+    @Test
+    void testParsesUrlsetWithLastmod() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                + "<url><loc>https://test.com/a</loc><lastmod>2024-05-01</lastmod></url>"
+                + "<url><loc> https://test.com/b </loc></url>"
+                + "</urlset>";
+        List<SitemapUrl> urls = new ArrayList<>();
+        List<String> nested = new ArrayList<>();
+
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), urls::add, nested::add);
+
+        assertEquals(2, urls.size());
+        assertEquals("https://test.com/a", urls.get(0).getLoc());
+        assertEquals(LocalDate.of(2024, 5, 1).atStartOfDay(), urls.get(0).getLastModified());
+        assertEquals("https://test.com/b", urls.get(1).getLoc());
+        assertNull(urls.get(1).getLastModified());
+        assertTrue(nested.isEmpty());
+    }
+
+    @Test
+    void testParsesSitemapIndex() throws Exception {
+        String xml = "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                + "<sitemap><loc>https://test.com/sitemap1.xml.gz</loc><lastmod>2024-05-01T10:00:00+00:00</lastmod></sitemap>"
+                + "<sitemap><loc>https://test.com/sitemap2.xml</loc></sitemap>"
+                + "</sitemapindex>";
+        List<SitemapUrl> urls = new ArrayList<>();
+        List<String> nested = new ArrayList<>();
+
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), urls::add, nested::add);
+
+        assertTrue(urls.isEmpty());
+        assertEquals(List.of("https://test.com/sitemap1.xml.gz", "https://test.com/sitemap2.xml"), nested);
+    }
+
+    @Test
+    void testImageEntriesDoNotReplacePageLoc() throws Exception {
+        String xml = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\""
+                + " xmlns:image=\"http://www.google.com/schemas/sitemap-image/1.1\">"
+                + "<url><loc>https://test.com/gallery</loc><lastmod>2024-05-01</lastmod>"
+                + "<image:image><image:loc>https://test.com/img/1.jpg</image:loc></image:image>"
+                + "<image:loc>https://test.com/img/2.jpg</image:loc></url>"
+                + "</urlset>";
+        List<SitemapUrl> urls = new ArrayList<>();
+
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), urls::add, loc -> { });
+
+        assertEquals(1, urls.size());
+        assertEquals("https://test.com/gallery", urls.get(0).getLoc());
+        assertEquals(LocalDate.of(2024, 5, 1).atStartOfDay(), urls.get(0).getLastModified());
+    }
+
+    @Test
+    void testSitemapWithoutNamespaceIsParsed() throws Exception {
+        String xml = "<urlset><url><loc>https://test.com/a</loc></url></urlset>";
+        List<SitemapUrl> urls = new ArrayList<>();
+
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), urls::add, loc -> { });
+
+        assertEquals(1, urls.size());
+        assertEquals("https://test.com/a", urls.get(0).getLoc());
+    }
+
+    @Test
+    void testUnparseableLastmodIsIgnored() {
+        assertNull(SitemapParser.parseLastmod("yesterday"));
+        assertNotNull(SitemapParser.parseLastmod("2024-05-01T10:00:00Z"));
+    }
+
+    @Test
+    void testHandlerStopsReading() throws Exception {
+        String xml = "<urlset><url><loc>https://test.com/a</loc></url><url><loc>https://test.com/b</loc></url>"
+                + "<url><loc>https://test.com/c</loc></url></urlset>";
+        List<SitemapUrl> urls = new ArrayList<>();
+
+        parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                url -> urls.add(url) && urls.size() < 2, loc -> { });
+
+        assertEquals(2, urls.size());
+    }
+}
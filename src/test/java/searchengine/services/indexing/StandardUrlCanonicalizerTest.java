@@ -0,0 +1,66 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandardUrlCanonicalizerTest {
+
+    private final StandardUrlCanonicalizer canonicalizer = new StandardUrlCanonicalizer(
+            "https://test.com/", List.of("utm_*", "jsessionid", "sid"));
+
+    @Test
+    void testDropsTrackingAndSessionParametersAndSortsTheRest() {
+        assertEquals("https://test.com/list?a=1&b=2",
+                canonicalizer.canonicalize("https://test.com/list?utm_source=mail&b=2&SID=42&a=1&UTM_Medium=x"));
+        assertEquals("https://test.com/list",
+                canonicalizer.canonicalize("https://test.com/list?utm_campaign=spring"));
+        assertEquals("https://test.com/cart",
+                canonicalizer.canonicalize("https://test.com/cart;jsessionid=ABC123"));
+        // Значения одного параметра сохраняют порядок
+        assertEquals("https://test.com/f?tag=b&tag=a",
+                canonicalizer.canonicalize("https://test.com/f?tag=b&tag=a"));
+    }
+
+    @Test
+    void testNormalizesHostPortAndPath() {
+        assertEquals("https://test.com/", canonicalizer.canonicalize("HTTPS://WWW.Test.com:443"));
+        assertEquals("https://test.com/b/", canonicalizer.canonicalize("https://test.com/a/../b/"));
+        assertEquals("http://test.com:8080/", canonicalizer.canonicalize("http://test.com:8080/"));
+        assertEquals("https://other.com/x", canonicalizer.canonicalize("https://Other.com/x"));
+    }
+
+    @Test
+    void testKeepsFetchableFormAndCollapsesOnlyTheKey() {
+        // Загружается найденный адрес: /docs/ и index.php не переписываются
+        String docs = canonicalizer.canonicalize("https://test.com/docs/index.html#intro");
+        assertEquals("https://test.com/docs/index.html", docs);
+        assertEquals("https://test.com/docs/", canonicalizer.canonicalize("https://test.com/docs/"));
+        assertEquals("https://test.com/dir/index.php?a=1",
+                canonicalizer.canonicalize("https://test.com/dir/index.php?a=1"));
+
+        assertEquals("https://test.com/docs", canonicalizer.dedupKey(docs));
+        assertEquals("https://test.com/docs", canonicalizer.dedupKey("https://test.com/docs/"));
+        assertEquals("https://test.com/dir?a=1", canonicalizer.dedupKey("https://test.com/dir/index.php?a=1"));
+        assertEquals("https://test.com/", canonicalizer.dedupKey("https://test.com/index.php"));
+        assertEquals("https://test.com/", canonicalizer.dedupKey("https://test.com/"));
+    }
+
+    @Test
+    void testNormalizesPercentEncoding() {
+        assertEquals("https://test.com/a%2Fb~c", canonicalizer.canonicalize("https://test.com/a%2fb%7Ec"));
+        assertEquals("https://test.com/%D0%BA%D0%BE%D1%82",
+                canonicalizer.canonicalize("https://test.com/кот"));
+        assertEquals(canonicalizer.canonicalize("https://test.com/%d0%ba%d0%be%d1%82"),
+                canonicalizer.canonicalize("https://test.com/кот"));
+    }
+
+    @Test
+    void testRejectsInvalidAndNonHttpUrls() {
+        assertNull(canonicalizer.canonicalize("mailto:info@test.com"));
+        assertNull(canonicalizer.canonicalize("https://test.com/a b"));
+        assertNull(canonicalizer.canonicalize(""));
+    }
+}
@@ -0,0 +1,82 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitedUrlSetTest {
+
+    @Test
+    void testAddReturnsFalseForDuplicate() {
+        VisitedUrlSet visited = new VisitedUrlSet(100, null);
+
+        assertTrue(visited.add("https://test.com/page"));
+        assertFalse(visited.add("https://test.com/page"));
+        assertTrue(visited.contains("https://test.com/page"));
+        assertFalse(visited.contains("https://test.com/other"));
+        assertEquals(1, visited.size());
+    }
+
+    @Test
+    void testLimitWithoutBloomFilterDropsNewUrls() {
+        VisitedUrlSet visited = new VisitedUrlSet(2, null);
+
+        assertTrue(visited.add("https://test.com/1"));
+        assertTrue(visited.add("https://test.com/2"));
+        assertFalse(visited.add("https://test.com/3"));
+        assertFalse(visited.add("https://test.com/1"));
+        assertEquals(1, visited.getDropped());
+    }
+
+    @Test
+    void testBloomFilterContinuesAfterLimit() {
+        VisitedUrlSet visited = new VisitedUrlSet(2, new BloomFilter(1000, 0.001));
+
+        assertTrue(visited.add("https://test.com/1"));
+        assertTrue(visited.add("https://test.com/2"));
+        assertTrue(visited.add("https://test.com/3"));
+        assertFalse(visited.add("https://test.com/3"));
+        assertFalse(visited.add("https://test.com/1"));
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    void testManyUrlsAndMemoryIsReported() {
+        VisitedUrlSet visited = new VisitedUrlSet(1_000_000, null);
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(visited.add("https://test.com/page/" + i));
+        }
+
+        assertEquals(100_000, visited.size());
+        assertFalse(visited.add("https://test.com/page/500"));
+        // Не больше 32 байт на отпечаток с учётом запаса таблиц
+        assertTrue(visited.memoryBytes() <= 100_000L * 32);
+    }
+
+    @Test
+    void testConcurrentAddsAcceptEachUrlOnce() throws InterruptedException {
+        VisitedUrlSet visited = new VisitedUrlSet(1_000_000, null);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (visited.add("https://test.com/" + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10_000, accepted.get());
+    }
+}
@@ -0,0 +1,85 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarcWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testResponseIsReadBackFromClosedFile() throws Exception {
+        byte[] body = "<html><body>Привет</body></html>".getBytes(StandardCharsets.UTF_8);
+        FetchResult fetched = new FetchResult("https://test.com/final", 200, "text/html; charset=utf-8",
+                body, "\"abc\"", "Mon, 01 Jan 2024 00:00:00 GMT");
+        try (WarcWriter writer = new WarcWriter(dir, 1024 * 1024)) {
+            writer.write(WarcRecord.response("https://test.com/page", 2, fetched,
+                    WarcWriter.warcDate(), WarcWriter.recordId()));
+        }
+
+        List<Path> files = list();
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().endsWith(WarcWriter.EXTENSION));
+
+        List<WarcRecord> records = readAll(files.get(0));
+        assertEquals(2, records.size());
+        assertEquals(WarcRecord.WARCINFO, records.get(0).getType());
+
+        WarcRecord record = records.get(1);
+        assertTrue(record.isResponse());
+        assertEquals("https://test.com/page", record.getTargetUri());
+        assertEquals(2, record.getDepth());
+        FetchResult replayed = record.toFetchResult();
+        assertEquals("https://test.com/final", replayed.getUrl());
+        assertEquals(200, replayed.getStatusCode());
+        assertEquals("text/html; charset=utf-8", replayed.getContentType());
+        assertEquals("\"abc\"", replayed.getEtag());
+        assertArrayEquals(body, replayed.getBody());
+    }
+
+    @Test
+    void testRotatesBySize() throws Exception {
+        FetchResult fetched = new FetchResult("https://test.com/", 200, "text/html",
+                new byte[4096], null, null);
+        try (WarcWriter writer = new WarcWriter(dir, 1)) {
+            for (int i = 0; i < 3; i++) {
+                writer.write(WarcRecord.response("https://test.com/" + i, 0, fetched,
+                        WarcWriter.warcDate(), WarcWriter.recordId()));
+            }
+        }
+
+        List<Path> files = list();
+        assertEquals(3, files.size());
+        for (Path file : files) {
+            assertEquals(1, readAll(file).stream().filter(WarcRecord::isResponse).count());
+        }
+    }
+
+    private List<Path> list() throws Exception {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<WarcRecord> readAll(Path file) throws Exception {
+        List<WarcRecord> records = new ArrayList<>();
+        try (WarcReader reader = WarcReader.open(file)) {
+            WarcRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}